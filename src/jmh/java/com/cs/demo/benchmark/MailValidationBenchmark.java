@@ -0,0 +1,57 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.validator.MailValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailValidationBenchmark {
+
+    private static final String MAIL_PATTERN_VALID_SYMBOLS_PART = "[a-z0-9!#$%&'*+/=?^_`{|}~-]+";
+
+    private static final String MAIL_PATTERN_VALID_DOMAIN_PART = "[a-z0-9](?:[a-z0-9-]*[a-z0-9])?";
+
+    private static final Pattern MAIL_PATTERN = Pattern.compile(String.format("^%1$s(?:\\.%1$s)*@(?:%2$s\\.)+%2$s$",
+            MAIL_PATTERN_VALID_SYMBOLS_PART, MAIL_PATTERN_VALID_DOMAIN_PART));
+
+    @Param({"short", "long", "adversarial"})
+    private String input;
+
+    private String mail;
+
+    @Setup
+    public void setup() {
+        mail = switch (input) {
+            case "short" -> "test@example.com";
+            case "long" -> "first.middle.last.department@mail.subdomain.example-company.com";
+            default -> "a.".repeat(200) + "a@" + "b-".repeat(200) + "b";
+        };
+    }
+
+    @Benchmark
+    public boolean pattern() {
+        return MAIL_PATTERN.matcher(mail).find();
+    }
+
+    @Benchmark
+    public boolean validator() {
+        return MailValidator.isValid(mail);
+    }
+}
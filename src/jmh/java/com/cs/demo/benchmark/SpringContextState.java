@@ -0,0 +1,71 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.DemoApplication;
+import com.cs.demo.model.UserData;
+import com.cs.demo.service.ReactiveUserService;
+import com.cs.demo.service.UserService;
+import com.cs.demo.testdata.Users;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Boots the application without a web server and seeds the in-memory H2 database with synthetic users, through
+ * whichever of the servlet and the reactive stacks is active.
+ */
+final class SpringContextState {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private SpringContextState() {}
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=warn")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Inserts {@code rows} users and returns their ids.
+     */
+    static long[] seed(ConfigurableApplicationContext context, int rows) {
+        if (context.getBeanNamesForType(UserService.class).length == 0) {
+            return seedReactive(context, rows);
+        }
+
+        UserService service = context.getBean(UserService.class);
+        long[] ids = new long[rows];
+
+        for (int i = 0; i < rows; i += SEED_BATCH_SIZE) {
+            List<UserData> users = service.insertAll(Users.users(i, Math.min(SEED_BATCH_SIZE, rows - i)));
+
+            for (int j = 0; j < users.size(); j++) {
+                ids[i + j] = users.get(j).getId();
+            }
+        }
+
+        context.getBean(JdbcTemplate.class).execute("ANALYZE TABLE user_data");
+
+        return ids;
+    }
+
+    private static long[] seedReactive(ConfigurableApplicationContext context, int rows) {
+        ReactiveUserService service = context.getBean(ReactiveUserService.class);
+        List<Long> ids = Flux.fromIterable(Users.users(0, rows))
+                .concatMap(service::save)
+                .map(UserData::getId)
+                .collectList()
+                .block();
+
+        context.getBean(DatabaseClient.class).sql("ANALYZE TABLE user_data").then().block();
+
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
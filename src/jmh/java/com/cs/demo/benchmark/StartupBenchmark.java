@@ -0,0 +1,157 @@
+package com.cs.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Launches the packaged application in a new JVM and measures the time to the first successful {@code GET /users}:
+ * <ul>
+ *     <li>{@code jar}: the executable jar as shipped today;</li>
+ *     <li>{@code thin}: the plain jar of the {@code aot} profile with its dependencies next to it;</li>
+ *     <li>{@code aot}: the same jar with the AOT-generated bean definitions ({@code -Dspring.aot.enabled=true});</li>
+ *     <li>{@code cds}: AOT plus the AppCDS archive recorded by the training run.</li>
+ * </ul>
+ * The artifacts have to be built first with {@code ./mvnw -P aot package}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"jar", "thin", "aot", "cds"})
+    private String mode;
+
+    private Path target;
+
+    private HttpClient client;
+
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        target = Path.of("target").toAbsolutePath();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+
+        if (!Files.exists(target.resolve("cds/demo.jsa"))) {
+            throw new IllegalStateException("build the application with ./mvnw -P aot package first");
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public int start() throws IOException, InterruptedException {
+        int port = freePort();
+
+        process = new ProcessBuilder(command(port))
+                .directory(target.resolve("cds").toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(String.format("http://localhost:%d/users", port)))
+                .build();
+
+        while (true) {
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+
+                if (status == 200) {
+                    return status;
+                }
+            } catch (ConnectException e) {
+                // the server is not listening yet
+            }
+
+            if (!process.isAlive()) {
+                throw new IllegalStateException("the application exited with " + process.exitValue());
+            }
+
+            Thread.sleep(1);
+        }
+    }
+
+    private List<String> command(int port) throws IOException {
+        List<String> command = new ArrayList<>();
+
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+
+        switch (mode) {
+            case "jar" -> command.addAll(List.of("-jar", executableJar()));
+            case "thin" -> command.addAll(List.of("-jar", thinJar()));
+            case "aot" -> command.addAll(List.of("-Dspring.aot.enabled=true", "-jar", thinJar()));
+            case "cds" -> command.addAll(List.of("-XX:SharedArchiveFile=demo.jsa", "-Xlog:cds=error",
+                    "-Dspring.aot.enabled=true", "-jar", thinJar()));
+            default -> throw new IllegalArgumentException(mode);
+        }
+
+        command.add("--server.port=" + port);
+        return command;
+    }
+
+    /**
+     * The thin jar is passed relative to {@code target/cds}, exactly as in the training run, as the CDS archive is
+     * only used with the class path it was recorded with.
+     */
+    private String thinJar() throws IOException {
+        return find(target.resolve("cds"), "-cds.jar").getFileName().toString();
+    }
+
+    private String executableJar() throws IOException {
+        return find(target, ".jar").toString();
+    }
+
+    private static Path find(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix))
+                    .filter(file -> !file.toString().endsWith("-jar-with-dependencies.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no *" + suffix + " in " + directory));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
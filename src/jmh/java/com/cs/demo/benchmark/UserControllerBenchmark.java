@@ -0,0 +1,67 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.controller.UserController;
+import com.cs.demo.model.UserData;
+import com.cs.demo.service.UserService;
+import com.cs.demo.testdata.Users;
+import com.cs.demo.validator.UserDataValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the validation done by {@code UserController.validateAndInsertUser} with the storage stubbed out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+
+    private UserController controller;
+
+    private UserData userData;
+
+    @Setup
+    public void setup() {
+        controller = new UserController();
+        userData = Users.user(1);
+
+        ReflectionTestUtils.setField(controller, "service", new StubUserService());
+        ReflectionTestUtils.setField(controller, "validator", new UserDataValidator(18));
+        ReflectionTestUtils.setField(controller, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(controller, "init");
+    }
+
+    @Benchmark
+    public UserData addUser() {
+        return controller.addUser(userData);
+    }
+
+    private static class StubUserService extends UserService {
+
+        @Override
+        public Optional<UserData> findByMail(String mail) {
+            return Optional.empty();
+        }
+
+        @Override
+        public UserData save(UserData data) {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.testdata.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDataBenchmark {
+
+    private UserData userData;
+
+    @Setup
+    public void setup() {
+        userData = Users.user(1);
+    }
+
+    @Benchmark
+    public UserData basedAt() {
+        return UserData.Builder.basedAt(userData)
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserRepository;
+import com.cs.demo.service.UserService;
+import com.cs.demo.testdata.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rows per second of {@code UserService.insertAll} (batched inserts) and one {@code UserService.save} per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class UserInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+
+    private UserService service;
+
+    private long nextIndex;
+
+    private List<UserData> users;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SpringContextState.start();
+        service = context.getBean(UserService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextUsers() {
+        users = Users.users(nextIndex, ROWS);
+        nextIndex += ROWS;
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanup() {
+        context.getBean(UserRepository.class).deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<UserData> insertAll() {
+        return service.insertAll(users);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int save() {
+        for (UserData user : users) {
+            service.save(user);
+        }
+
+        return users.size();
+    }
+}
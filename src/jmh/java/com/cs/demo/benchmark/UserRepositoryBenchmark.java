@@ -0,0 +1,100 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries {@link UserRepository} directly, bypassing the caches in {@code UserService}.
+ * Run with {@code -p rows=1000000} to measure at production size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class UserRepositoryBenchmark {
+
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+    private static final int BIRTH_DATE_DAYS = 50 * 365;
+
+    @Param({"100000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private UserRepository repository;
+
+    private long minId;
+
+    private long maxId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SpringContextState.start();
+        SpringContextState.seed(context, rows);
+
+        repository = context.getBean(UserRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM user_data", Long.class);
+        maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_data", Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<UserData> findById() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(minId, maxId + 1));
+    }
+
+    @Benchmark
+    public Optional<UserData> findByMail() {
+        return repository.findByMail(String.format("user%d@example.com", ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public List<UserData> findAllByRangeOfMonth() {
+        LocalDate from = FIRST_BIRTH_DATE.plusDays(ThreadLocalRandom.current().nextInt(BIRTH_DATE_DAYS));
+
+        return repository.fillAllByRange(from, from.plusMonths(1));
+    }
+
+    @Benchmark
+    public List<UserData> findAllAfterPage() {
+        return repository.findAllAfter(ThreadLocalRandom.current().nextLong(minId, maxId + 1), Limit.of(100));
+    }
+
+    @Benchmark
+    public List<UserData> findAllByRangeAfterPage() {
+        LocalDate from = FIRST_BIRTH_DATE.plusDays(ThreadLocalRandom.current().nextInt(BIRTH_DATE_DAYS));
+
+        return repository.findAllByRangeAfter(from, from.plusYears(5), Long.MIN_VALUE, Limit.of(100));
+    }
+}
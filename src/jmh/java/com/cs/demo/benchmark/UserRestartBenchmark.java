@@ -0,0 +1,144 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.DemoApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarts the application on a file-backed database ({@code file} profile) holding {@code rows} users, and measures
+ * the time the first {@code requests} requests take once it has started. The requests alternate {@code GET /users/{id}} and week-long {@code GET /users?from=&to=},
+ * picked by the same seed on every restart.
+ * <p>
+ * The database is seeded once per trial. The operating system keeps its file cache between restarts, so the numbers
+ * show the cost of filling the H2 cache, not of cold disk reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class UserRestartBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"1000"})
+    private int requests;
+
+    private Path directory;
+
+    private HttpClient client;
+
+    private long[] ids;
+
+    private int port;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("users");
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+
+        try (ConfigurableApplicationContext seeded = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("file")
+                .properties("logging.level.root=warn")
+                .run(storagePath())) {
+            ids = SpringContextState.seed(seeded, rows);
+        }
+    }
+
+    /**
+     * Starts the application. {@code run} only returns once the web server listens and the
+     * {@code ApplicationReadyEvent} listeners have filled the in-process indexes.
+     */
+    @Setup(Level.Invocation)
+    public void start() throws IOException {
+        port = freePort();
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .profiles("file")
+                .properties("server.port=" + port, "logging.level.root=warn")
+                .run(storagePath());
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int firstRequests() throws IOException, InterruptedException {
+        Random random = new Random(42);
+        int found = 0;
+
+        for (int i = 0; i < requests; i++) {
+            String path;
+
+            if (i % 2 == 0) {
+                path = "/users/" + ids[random.nextInt(ids.length)];
+            } else {
+                LocalDate from = LocalDate.of(1940, 1, 1).plusDays(random.nextInt(60 * 365));
+
+                path = String.format("/users?from=%s&to=%s", from, from.plusDays(7));
+            }
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * The storage settings are passed as arguments, as the {@code file} profile overrides default properties.
+     */
+    private String storagePath() {
+        return "--spring.application.storage.path=" + directory.resolve("users");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
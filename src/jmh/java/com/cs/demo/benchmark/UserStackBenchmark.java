@@ -0,0 +1,114 @@
+package com.cs.demo.benchmark;
+
+import com.cs.demo.DemoApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the same requests from 1000 concurrent clients against the servlet stack and the reactive ({@code reactive}
+ * profile) stack. Throughput and the sample-time percentiles (p99) are reported for both.
+ * <p>
+ * {@code getUserById} is a primary key lookup, which the servlet stack usually answers from its cache and the reactive
+ * stack always reads from the database. {@code getUsersPage} reads a keyset page from the database on both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1000)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class UserStackBenchmark {
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    @Param({"10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient client;
+
+    private long[] ids;
+
+    private String baseUri;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(DemoApplication.class)
+                .properties("server.port=0", "logging.level.root=warn");
+
+        if (stack.equals("reactive")) {
+            builder.profiles("reactive");
+        }
+
+        context = builder.run();
+        ids = SpringContextState.seed(context, rows);
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        // The default HTTP/2 upgrade attempt stalls against Tomcat's reactive adapter.
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+        baseUri = String.format("http://localhost:%s", context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int getUserById() throws IOException, InterruptedException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+
+        return send("/users/" + id);
+    }
+
+    @Benchmark
+    public int getUsersPage() throws IOException, InterruptedException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+
+        String cursor = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+
+        return send("/users?limit=20&cursor=" + cursor);
+    }
+
+    private int send(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUri + path)).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
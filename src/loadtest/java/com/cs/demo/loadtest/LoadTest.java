@@ -0,0 +1,285 @@
+package com.cs.demo.loadtest;
+
+import com.cs.demo.DemoApplication;
+import com.cs.demo.model.UserData;
+import com.cs.demo.service.ReactiveUserService;
+import com.cs.demo.service.UserService;
+import com.cs.demo.testdata.Users;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots {@link DemoApplication} on a random port, seeds it with synthetic users and drives a weighted mix of
+ * {@link Operation}s against it at a constant arrival rate.
+ * <p>
+ * The load is an open model: requests are started on schedule whether or not the earlier ones have been answered,
+ * and every latency is measured from the time the request was due rather than from the time it was sent. A slow
+ * server therefore shows up as queueing in the percentiles instead of as a lower request rate. The operations and
+ * their parameters come from a seeded random generator, so runs with the same options send the same requests.
+ * <p>
+ * The run fails, with exit code 1, if any request fails or if an operation's p99 exceeds {@code --maxP99}.
+ */
+public final class LoadTest {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private final LoadTestOptions options;
+
+    private final Workload workload;
+
+    private final HttpClient client;
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private LoadTest(LoadTestOptions options, Workload workload, HttpClient client) {
+        this.options = options;
+        this.workload = workload;
+        this.client = client;
+
+        List<Operation> weighted = options.mix().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        operations = weighted.toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+
+        for (int i = 0, sum = 0; i < operations.length; i++) {
+            sum += options.mix().get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        boolean passed;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .profiles(options.profiles())
+                .properties("server.port=0", "logging.level.root=warn")
+                .run();
+             HttpClient client = HttpClient.newBuilder()
+                     // The default HTTP/2 upgrade attempt stalls against Tomcat's reactive adapter.
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .build()) {
+            String baseUri = String.format("http://localhost:%s",
+                    context.getEnvironment().getProperty("local.server.port"));
+            Workload workload = new Workload(baseUri, context.getBean(ObjectMapper.class),
+                    seed(context, options.users()));
+
+            passed = new LoadTest(options, workload, client).run();
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws IOException {
+        Map<Operation, OperationStats> stats;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            SplittableRandom random = new SplittableRandom(options.seed());
+
+            drive(executor, random, options.warmUp(), newStats());
+            stats = newStats();
+            drive(executor, random, options.duration(), stats);
+        }
+
+        report(System.out, stats);
+
+        if (options.histograms() != null) {
+            writeHistograms(stats);
+        }
+
+        return check(stats);
+    }
+
+    /**
+     * Starts {@code rate} requests per second for {@code duration}. The requests still in flight at the end are
+     * recorded into {@code stats} when they complete.
+     */
+    private void drive(ExecutorService executor, SplittableRandom random, Duration duration,
+                       Map<Operation, OperationStats> stats) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long due = start; due - end < 0; due += intervalNanos) {
+            long delay = due - System.nanoTime();
+
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            Operation operation = nextOperation(random);
+            HttpRequest request = operation.request(workload, random);
+            OperationStats operationStats = stats.get(operation);
+
+            if (request == null) {
+                operationStats.recordSkipped();
+                continue;
+            }
+
+            long dueAt = due;
+
+            executor.execute(() -> send(operation, request, dueAt, operationStats));
+        }
+    }
+
+    private void send(Operation operation, HttpRequest request, long due, OperationStats stats) {
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() / 100 != 2) {
+                stats.recordError();
+                return;
+            }
+
+            stats.recordSuccess(System.nanoTime() - due);
+            operation.completed(workload, response);
+        } catch (IOException | RuntimeException e) {
+            stats.recordError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stats.recordError();
+        }
+    }
+
+    private Operation nextOperation(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+
+        throw new IllegalStateException();
+    }
+
+    private void report(PrintStream out, Map<Operation, OperationStats> stats) {
+        double seconds = options.duration().toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+
+        out.printf("%d users, %.0f req/s for %s after %s of warm-up, seed %d%n", options.users(), options.rate(),
+                options.duration(), options.warmUp(), options.seed());
+        out.printf("%-9s %8s %7s %7s %9s %9s %9s %9s %9s %9s%n", "operation", "ok", "errors", "skipped", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        stats.forEach((operation, operationStats) -> {
+            Histogram latencies = operationStats.getLatencies();
+
+            out.printf("%-9s %8d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.getName(),
+                    latencies.getTotalCount(), operationStats.getErrors(), operationStats.getSkipped(),
+                    (latencies.getTotalCount() + operationStats.getErrors()) / seconds,
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()));
+        });
+    }
+
+    /**
+     * Writes {@code <operation>.hgrm} files in milliseconds, which the HdrHistogram plotter reads.
+     */
+    private void writeHistograms(Map<Operation, OperationStats> stats) throws IOException {
+        Files.createDirectories(options.histograms());
+
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(options.histograms().resolve(entry.getKey().getName() + ".hgrm")))) {
+                entry.getValue().getLatencies().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private boolean check(Map<Operation, OperationStats> stats) {
+        boolean passed = true;
+
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            long p99 = operationStats.getLatencies().getValueAtPercentile(99);
+
+            if (operationStats.getErrors() > 0) {
+                System.out.printf("FAILED: %d %s requests failed%n", operationStats.getErrors(),
+                        entry.getKey().getName());
+                passed = false;
+            }
+
+            if (options.maxP99() != null && p99 > TimeUnit.NANOSECONDS.toMicros(options.maxP99().toNanos())) {
+                System.out.printf("FAILED: %s p99 of %.2f ms exceeds %s%n", entry.getKey().getName(), millis(p99),
+                        options.maxP99());
+                passed = false;
+            }
+        }
+
+        return passed;
+    }
+
+    private Map<Operation, OperationStats> newStats() {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+        for (Operation operation : operations) {
+            stats.put(operation, new OperationStats());
+        }
+
+        return stats;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Inserts {@code rows} users through whichever of the servlet and the reactive stacks is active and returns
+     * their ids, in the order of {@link Users#user}.
+     */
+    private static long[] seed(ConfigurableApplicationContext context, int rows) {
+        if (context.getBeanNamesForType(UserService.class).length == 0) {
+            List<Long> ids = Flux.fromIterable(Users.users(0, rows))
+                    .concatMap(context.getBean(ReactiveUserService.class)::save)
+                    .map(UserData::getId)
+                    .collectList()
+                    .block();
+
+            context.getBean(DatabaseClient.class).sql("ANALYZE TABLE user_data").then().block();
+
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        UserService service = context.getBean(UserService.class);
+        long[] ids = new long[rows];
+
+        for (int i = 0; i < rows; i += SEED_BATCH_SIZE) {
+            List<UserData> users = service.insertAll(Users.users(i, Math.min(SEED_BATCH_SIZE, rows - i)));
+
+            for (int j = 0; j < users.size(); j++) {
+                ids[i + j] = users.get(j).getId();
+            }
+        }
+
+        context.getBean(JdbcTemplate.class).execute("ANALYZE TABLE user_data");
+
+        return ids;
+    }
+}
@@ -0,0 +1,99 @@
+package com.cs.demo.loadtest;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of {@link LoadTest}, given as {@code --name=value}. Every option has a default, so a run
+ * without arguments is a short smoke test.
+ *
+ * @param users      users seeded before the run
+ * @param rate       requests started per second, whatever the response times are
+ * @param warmUp     time the load is applied before anything is recorded
+ * @param duration   time the load is recorded for
+ * @param mix        relative weight of each operation
+ * @param seed       seed of the random operations, so two runs send the same sequence of requests
+ * @param profiles   Spring profiles the application is started with
+ * @param maxP99     p99 latency no operation may exceed, if any
+ * @param histograms directory the percentile distribution of every operation is written to, if any
+ */
+record LoadTestOptions(int users, double rate, Duration warmUp, Duration duration, Map<Operation, Integer> mix,
+                       long seed, String[] profiles, Duration maxP99, Path histograms) {
+
+    static final String DEFAULT_MIX = "getById=40,page=20,range=15,all=1,post=8,put=5,patch=6,delete=5";
+
+    static LoadTestOptions parse(String... args) {
+        ApplicationArguments arguments = new DefaultApplicationArguments(args);
+
+        if (!arguments.getNonOptionArgs().isEmpty()) {
+            throw new IllegalArgumentException("unexpected arguments " + arguments.getNonOptionArgs());
+        }
+
+        String maxP99 = value(arguments, "maxP99", null);
+        String histograms = value(arguments, "histograms", null);
+        String profiles = value(arguments, "profiles", "");
+
+        LoadTestOptions options = new LoadTestOptions(
+                Integer.parseInt(value(arguments, "users", "10000")),
+                Double.parseDouble(value(arguments, "rate", "200")),
+                DurationStyle.detectAndParse(value(arguments, "warmUp", "10s")),
+                DurationStyle.detectAndParse(value(arguments, "duration", "30s")),
+                parseMix(value(arguments, "mix", DEFAULT_MIX)),
+                Long.parseLong(value(arguments, "seed", "42")),
+                profiles.isEmpty() ? new String[0] : profiles.split(","),
+                maxP99 != null ? DurationStyle.detectAndParse(maxP99) : null,
+                histograms != null ? Path.of(histograms) : null);
+
+        if (options.users() < 1) {
+            throw new IllegalArgumentException("users must be positive");
+        }
+
+        if (options.rate() <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+
+        return options;
+    }
+
+    /**
+     * Parses {@code name=weight} pairs such as {@code getById=40,post=8}. Operations that are not listed are not sent.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("mix entries must look like name=weight: " + entry);
+            }
+
+            int weight = Integer.parseInt(pair[1].trim());
+
+            if (weight < 0) {
+                throw new IllegalArgumentException("weights must not be negative: " + entry);
+            }
+
+            weights.put(Operation.byName(pair[0].trim()), weight);
+        }
+
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("mix must have at least one positive weight");
+        }
+
+        return weights;
+    }
+
+    private static String value(ApplicationArguments arguments, String name, String defaultValue) {
+        List<String> values = arguments.getOptionValues(name);
+
+        return values == null || values.isEmpty() ? defaultValue : values.get(values.size() - 1);
+    }
+}
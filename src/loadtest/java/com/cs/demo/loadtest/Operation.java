@@ -0,0 +1,123 @@
+package com.cs.demo.loadtest;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.testdata.Users;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The requests {@link LoadTest} mixes. Reads and updates target the seeded users only, and only users created by
+ * {@link #POST} are deleted, so every request of a run is expected to succeed.
+ */
+enum Operation {
+
+    GET_ALL("all") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            return workload.get("/users");
+        }
+    },
+
+    GET_BY_ID("getById") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            return workload.get("/users/" + workload.seededId(random.nextInt(workload.seededUsers())));
+        }
+    },
+
+    GET_PAGE("page") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            long id = workload.seededId(random.nextInt(workload.seededUsers()));
+
+            return workload.get("/users?limit=20&cursor=" + Workload.cursor(id));
+        }
+    },
+
+    GET_RANGE("range") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            LocalDate from = Users.FIRST_BIRTH_DATE.plusDays(random.nextInt(Users.BIRTH_DATE_DAYS));
+
+            return workload.get(String.format("/users?from=%s&to=%s", from, from.plusDays(RANGE_DAYS)));
+        }
+    },
+
+    POST("post") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            return workload.send("POST", "/users", Users.user(workload.nextNewUserIndex()));
+        }
+
+        @Override
+        void completed(Workload workload, HttpResponse<String> response) {
+            workload.created(response.body());
+        }
+    },
+
+    PUT("put") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            int index = random.nextInt(workload.seededUsers());
+            UserData data = UserData.Builder.basedAt(Users.user(index))
+                    .setFirstName("firstName" + random.nextInt())
+                    .build();
+
+            return workload.send("PUT", "/users/" + workload.seededId(index), data);
+        }
+    },
+
+    PATCH("patch") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            int index = random.nextInt(workload.seededUsers());
+
+            return workload.send("PATCH", "/users/" + workload.seededId(index),
+                    Map.of("lastName", "lastName" + random.nextInt()));
+        }
+    },
+
+    DELETE("delete") {
+        @Override
+        HttpRequest request(Workload workload, SplittableRandom random) {
+            Long id = workload.pollCreated();
+
+            return id != null ? workload.delete("/users/" + id) : null;
+        }
+    };
+
+    private static final int RANGE_DAYS = 30;
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Builds the next request, or returns {@code null} if there is nothing to send, such as a delete before any user
+     * was created.
+     */
+    abstract HttpRequest request(Workload workload, SplittableRandom random);
+
+    /**
+     * Called with every successful response.
+     */
+    void completed(Workload workload, HttpResponse<String> response) {}
+
+    String getName() {
+        return name;
+    }
+
+    static Operation byName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown operation " + name));
+    }
+}
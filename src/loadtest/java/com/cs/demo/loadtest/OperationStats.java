@@ -0,0 +1,44 @@
+package com.cs.demo.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of the successful responses to one {@link Operation} in microseconds, and counts of what did not succeed.
+ */
+final class OperationStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Histogram latencies = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    void recordSuccess(long latencyNanos) {
+        latencies.recordValue(Math.max(1, latencyNanos / 1000));
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    Histogram getLatencies() {
+        return latencies;
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getSkipped() {
+        return skipped.sum();
+    }
+}
@@ -0,0 +1,92 @@
+package com.cs.demo.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The users a run works on and the requests built from them: the seeded users, whose ids are fixed for the run, and
+ * the users created by the load itself, which are the only ones deleted.
+ */
+final class Workload {
+
+    private final String baseUri;
+
+    private final ObjectMapper mapper;
+
+    private final long[] seededIds;
+
+    private final AtomicLong newUserIndex;
+
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    Workload(String baseUri, ObjectMapper mapper, long[] seededIds) {
+        this.baseUri = baseUri;
+        this.mapper = mapper;
+        this.seededIds = seededIds;
+        this.newUserIndex = new AtomicLong(seededIds.length);
+    }
+
+    int seededUsers() {
+        return seededIds.length;
+    }
+
+    /**
+     * Id of the user seeded from {@link Users#user} with {@code index}.
+     */
+    long seededId(int index) {
+        return seededIds[index];
+    }
+
+    long nextNewUserIndex() {
+        return newUserIndex.getAndIncrement();
+    }
+
+    void created(String body) {
+        try {
+            createdIds.add(mapper.readTree(body).get("id").asLong());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Long pollCreated() {
+        return createdIds.poll();
+    }
+
+    HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .build();
+    }
+
+    HttpRequest delete(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .DELETE()
+                .build();
+    }
+
+    HttpRequest send(String method, String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUri + path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String cursor(long id) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+}
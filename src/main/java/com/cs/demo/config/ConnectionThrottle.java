@@ -0,0 +1,15 @@
+package com.cs.demo.config;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Puts a connection pool behind its own {@link ThrottledDataSource}. Routing data sources are never throttled
+ * themselves, only the pools they route to, so a transaction on one pool does not hold a permit of another.
+ */
+public record ConnectionThrottle(int permits, Duration timeout) {
+
+    public DataSource apply(DataSource pool) {
+        return new ThrottledDataSource(pool, permits, timeout);
+    }
+}
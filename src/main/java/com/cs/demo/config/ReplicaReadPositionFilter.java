@@ -0,0 +1,67 @@
+package com.cs.demo.config;
+
+import com.cs.demo.repository.UserReplicas;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Gives a client read-your-writes across instances of the {@code replicated} profile: the position of its last write
+ * is sent back in a cookie, and requests that carry it are only served by replicas that have applied it.
+ */
+@Component
+@Profile("replicated")
+public class ReplicaReadPositionFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "user-read-position";
+
+    @Autowired
+    private UserReplicas replicas;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        replicas.startClient(readPosition(request), position -> response.addCookie(cookie(position)));
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            replicas.finishClient();
+        }
+    }
+
+    private Cookie cookie(long position) {
+        Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(position));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, replicas.getReadPositionTtl().plusMillis(999).toSeconds()));
+
+        return cookie;
+    }
+
+    private static long readPosition(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+}
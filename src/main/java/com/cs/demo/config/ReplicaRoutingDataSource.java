@@ -0,0 +1,57 @@
+package com.cs.demo.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections of the replica selected for the current thread with {@link #on}, or of the primary when none
+ * is.
+ * <p>
+ * Like {@link ShardRoutingDataSource} it has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that a transaction begun before the
+ * replica was picked still ends up on it.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> CURRENT_REPLICA = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        Map<Object, Object> targets = new HashMap<>();
+
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Runs {@code action} against {@code replica}, or against the primary if {@code replica} is {@code null}.
+     */
+    public static <T> T on(Integer replica, Supplier<T> action) {
+        Integer previous = CURRENT_REPLICA.get();
+        CURRENT_REPLICA.set(replica);
+
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_REPLICA.remove();
+            } else {
+                CURRENT_REPLICA.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT_REPLICA.get();
+    }
+}
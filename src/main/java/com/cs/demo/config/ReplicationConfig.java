@@ -0,0 +1,105 @@
+package com.cs.demo.config;
+
+import com.cs.demo.repository.ReplicatedUserRepository;
+import com.cs.demo.repository.UserReplicas;
+import com.cs.demo.repository.UserReplicator;
+import com.cs.demo.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * With the {@code replicated} profile reads of users go to the databases of
+ * {@code spring.application.replication.replicas} when {@link UserReplicas} finds one that is healthy and caught up
+ * enough, and everything else goes to the primary of {@code spring.datasource.url}.
+ * <p>
+ * JPA runs on a single {@link ReplicaRoutingDataSource} over the primary and the replicas, and {@link UserRepository}
+ * is wrapped in a {@link ReplicatedUserRepository} that picks the database of every call. The replicas are kept in
+ * sync by {@link UserReplicator}.
+ */
+@Configuration
+@Profile("replicated")
+public class ReplicationConfig implements DisposableBean {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Autowired
+    private ObjectProvider<ConnectionThrottle> throttle;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Value("${spring.datasource.url}") String primaryUrl,
+                                 @Value("${spring.application.replication.replicas}") String[] replicaUrls) {
+        HikariDataSource primary = pool(primaryUrl);
+        primary.setPoolName("primary");
+        pools.add(primary);
+
+        List<DataSource> replicas = new ArrayList<>();
+
+        for (int i = 0; i < replicaUrls.length; i++) {
+            HikariDataSource replica = pool(replicaUrls[i]);
+            replica.setPoolName("replica-" + i);
+            pools.add(replica);
+            replicas.add(throttled(replica));
+        }
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(throttled(primary), replicas);
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public static BeanPostProcessor replicatedUserRepositoryPostProcessor(ObjectProvider<UserReplicas> replicas) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof UserRepository repository) {
+                    return new ReplicatedUserRepository(repository, replicas.getObject());
+                }
+
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private DataSource throttled(DataSource pool) {
+        ConnectionThrottle connectionThrottle = throttle.getIfAvailable();
+
+        return connectionThrottle != null ? connectionThrottle.apply(pool) : pool;
+    }
+
+    private HikariDataSource pool(String url) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.cs.demo.config;
+
+import com.cs.demo.repository.ShardedUserRepository;
+import com.cs.demo.repository.UserDataListener;
+import com.cs.demo.repository.UserRepository;
+import com.cs.demo.repository.UserShardDirectory;
+import com.cs.demo.repository.UserShards;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * With the {@code sharded} profile users are spread over the databases of {@code spring.application.sharding.shards}
+ * by {@link UserShards}, with ids and mails kept in the database of {@code spring.application.sharding.directory}.
+ * <p>
+ * JPA runs on a single {@link ShardRoutingDataSource} over all shards, and {@link UserRepository} is replaced with a
+ * {@link ShardedUserRepository} that delegates to it on the shard of every call.
+ */
+@Configuration
+@Profile("sharded")
+public class ShardingConfig implements DisposableBean {
+
+    private final List<HikariDataSource> shards = new ArrayList<>();
+
+    @Autowired
+    private ObjectProvider<ConnectionThrottle> throttle;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Value("${spring.application.sharding.shards}") String[] urls) {
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource shard = pool(urls[i]);
+            shard.setPoolName("shard-" + i);
+            shards.add(shard);
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(
+                shards.stream().map(this::throttled).toList());
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public HikariDataSource userShardDirectoryDataSource(@Value("${spring.application.sharding.directory}") String url) {
+        HikariDataSource directory = pool(url);
+        directory.setPoolName("shard-directory");
+
+        return directory;
+    }
+
+    @Bean
+    public static BeanPostProcessor shardedUserRepositoryPostProcessor(ObjectProvider<UserShards> shards,
+                                                                       ObjectProvider<UserShardDirectory> directory,
+                                                                       AutowireCapableBeanFactory beanFactory) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof UserRepository repository) {
+                    return new ShardedUserRepository(repository, shards.getObject(), directory.getObject(),
+                            beanFactory.createBean(UserDataListener.class));
+                }
+
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        shards.forEach(HikariDataSource::close);
+    }
+
+    private DataSource throttled(DataSource pool) {
+        ConnectionThrottle connectionThrottle = throttle.getIfAvailable();
+
+        return connectionThrottle != null ? connectionThrottle.apply(pool) : pool;
+    }
+
+    private HikariDataSource pool(String url) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.cs.demo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts every SQL statement Hibernate prepares, in total and for the request bound to the current thread. For the
+ * request it also adds up the time its sessions wait for a JDBC connection, through {@link ConnectionAcquisition}.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Request> REQUEST = new ThreadLocal<>();
+
+    private final Counter statements;
+
+    public SqlStatementCounter(MeterRegistry registry) {
+        this.statements = Counter.builder("sql.statements")
+                .description("SQL statements prepared by Hibernate")
+                .register(registry);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        statements.increment();
+
+        Request request = REQUEST.get();
+
+        if (request != null) {
+            request.statements++;
+        }
+
+        return sql;
+    }
+
+    public long count() {
+        return (long) statements.count();
+    }
+
+    Request startRequest() {
+        Request request = new Request();
+        REQUEST.set(request);
+
+        return request;
+    }
+
+    /**
+     * Binds a started request to the current thread, such as the thread that writes its asynchronous response.
+     */
+    void bind(Request request) {
+        REQUEST.set(request);
+    }
+
+    void unbind() {
+        REQUEST.remove();
+    }
+
+    static final class Request {
+
+        private long statements;
+
+        private long acquisitionNanos;
+
+        long getStatements() {
+            return statements;
+        }
+
+        long getAcquisitionNanos() {
+            return acquisitionNanos;
+        }
+    }
+
+    /**
+     * Registered with every Hibernate session; times how long it waits for its JDBC connection.
+     */
+    public static class ConnectionAcquisition implements SessionEventListener {
+
+        private long start;
+
+        @Override
+        public void jdbcConnectionAcquisitionStart() {
+            start = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcConnectionAcquisitionEnd() {
+            Request request = REQUEST.get();
+
+            if (request != null) {
+                request.acquisitionNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
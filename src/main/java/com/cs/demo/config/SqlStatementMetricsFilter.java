@@ -0,0 +1,106 @@
+package com.cs.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Records the SQL statements and the connection wait of every request. A request that goes asynchronous, such as
+ * {@code /users/export}, keeps counting on the thread that produces its response and is recorded once its async
+ * dispatch is done.
+ */
+@Component
+@Profile("!reactive")
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final String REQUEST_ATTRIBUTE = SqlStatementMetricsFilter.class.getName() + ".request";
+
+    @Autowired
+    private SqlStatementCounter counter;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Request statements = (SqlStatementCounter.Request) request.getAttribute(REQUEST_ATTRIBUTE);
+
+        if (statements == null || !isAsyncDispatch(request)) {
+            statements = counter.startRequest();
+            request.setAttribute(REQUEST_ATTRIBUTE, statements);
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(REQUEST_ATTRIBUTE,
+                    new AsyncStatements(statements));
+        } else {
+            counter.bind(statements);
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            counter.unbind();
+
+            if (!isAsyncStarted(request)) {
+                record(request, statements);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCounter.Request statements) {
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uriTag = uri != null ? uri.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("SQL statements prepared while handling a request")
+                .tag("method", request.getMethod())
+                .tag("uri", uriTag)
+                .register(registry)
+                .record(statements.getStatements());
+        Timer.builder("http.server.requests.connection.acquisition")
+                .description("Time a request waited for JDBC connections")
+                .tag("method", request.getMethod())
+                .tag("uri", uriTag)
+                .register(registry)
+                .record(Duration.ofNanos(statements.getAcquisitionNanos()));
+    }
+
+    private class AsyncStatements implements CallableProcessingInterceptor {
+
+        private final SqlStatementCounter.Request statements;
+
+        AsyncStatements(SqlStatementCounter.Request statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            counter.bind(statements);
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            counter.unbind();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.cs.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * With {@code spring.threads.virtual.enabled} Spring Boot runs request handling, and so every {@code UserService}
+ * call, on virtual threads. Thousands of them can then block on JDBC at once, so every connection pool is put behind
+ * a {@link ThrottledDataSource}: the pool beans here, and the pools the {@code sharded} and {@code replicated}
+ * profiles route to through {@link ConnectionThrottle}.
+ */
+@Configuration
+@ConditionalOnProperty(value = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public static ConnectionThrottle connectionThrottle(
+            @Value("${spring.application.connectionPermits}") int permits,
+            @Value("${spring.application.connectionPermitTimeout}") Duration timeout) {
+        return new ConnectionThrottle(permits, timeout);
+    }
+
+    @Bean
+    public static BeanPostProcessor throttledDataSourcePostProcessor(ObjectProvider<ConnectionThrottle> throttle) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    return throttle.getObject().apply(pool);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
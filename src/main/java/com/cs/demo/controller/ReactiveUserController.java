@@ -0,0 +1,235 @@
+package com.cs.demo.controller;
+
+import com.cs.demo.exception.UserControllerBadRequestException;
+import com.cs.demo.exception.UserControllerPreconditionFailedException;
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataPage;
+import com.cs.demo.service.ReactiveUserService;
+import com.cs.demo.validator.UserDataValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The user API of {@link UserController} on WebFlux, selected with the {@code reactive} profile.
+ * <p>
+ * It covers the listing, paging, export and CRUD endpoints with the same validation rules, error messages and
+ * validators. Lookups by ids, search, statistics, projections, batches and write-behind rely on the in-process state
+ * of the servlet stack and are not offered here.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserService service;
+
+    @Autowired
+    private UserDataValidator validator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer validationTimer;
+
+    @Value("${spring.application.maxPageSize}")
+    private int maxPageSize;
+
+    @PostConstruct
+    void init() {
+        validationTimer = Timer.builder("user.validation")
+                .description("Validation of a user before it is saved")
+                .register(meterRegistry);
+    }
+
+    @GetMapping(value = "/users")
+    public ResponseEntity<Flux<UserData>> getAllUsers() {
+        return withTableETag(service.findAll());
+    }
+
+    @GetMapping(value = "/users", params = {"from", "to"})
+    public ResponseEntity<Flux<UserData>> getAllUsersByRange(@RequestParam("from") LocalDate from,
+                                                             @RequestParam("to") LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new UserControllerBadRequestException("from value must be less than to value");
+        }
+
+        return withTableETag(service.findAllByRange(from, to));
+    }
+
+    @GetMapping(value = "/users", params = "limit")
+    public Mono<UserDataPage> getUsersPage(@RequestParam("limit") int limit,
+                                           @RequestParam(value = "cursor", required = false) String cursor) {
+        validatePageLimit(limit);
+
+        Long id = cursor != null ? UserRequests.parseCursorId(UserRequests.decodeCursor(cursor)) : Long.MIN_VALUE;
+
+        return service.findAllAfter(id, limit + 1)
+                .collectList()
+                .map(users -> users.size() <= limit
+                        ? new UserDataPage(users, null)
+                        : new UserDataPage(users.subList(0, limit),
+                                UserRequests.encodeCursor(String.valueOf(users.get(limit - 1).getId()))));
+    }
+
+    @GetMapping(value = "/users", params = {"from", "to", "limit"})
+    public Mono<UserDataPage> getUsersPageByRange(@RequestParam("from") LocalDate from,
+                                                  @RequestParam("to") LocalDate to,
+                                                  @RequestParam("limit") int limit,
+                                                  @RequestParam(value = "cursor", required = false) String cursor) {
+        if (from.isAfter(to)) {
+            throw new UserControllerBadRequestException("from value must be less than to value");
+        }
+
+        validatePageLimit(limit);
+
+        UserRequests.RangeCursor position = UserRequests.parseRangeCursor(cursor, from);
+
+        return service.findAllByRangeAfter(position.birthDate(), to, position.id(), limit + 1)
+                .collectList()
+                .map(users -> users.size() <= limit
+                        ? new UserDataPage(users, null)
+                        : new UserDataPage(users.subList(0, limit),
+                                UserRequests.encodeRangeCursor(users.get(limit - 1))));
+    }
+
+    @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserData> exportUsers() {
+        return service.findAll();
+    }
+
+    @GetMapping(value = "/users/{id}")
+    public Mono<ResponseEntity<UserData>> getUserById(@PathVariable("id") Long id) {
+        return service.findById(id)
+                .switchIfEmpty(Mono.error(() -> new UserControllerBadRequestException("unknown id")))
+                .map(ReactiveUserController::withETag);
+    }
+
+    @PostMapping(value = "/users")
+    public Mono<UserData> addUser(@RequestBody UserData userData) {
+        return validateAndInsertUser(userData, false);
+    }
+
+    @PutMapping(value = "/users/{id}")
+    public Mono<ResponseEntity<UserData>> updateUser(@PathVariable("id") Long id, @RequestBody UserData userData,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch == null) {
+            return service.findById(id)
+                    .doOnNext(data -> userData.setId(data.getId()))
+                    .then(Mono.defer(() -> validateAndInsertUser(userData, true)))
+                    .map(ReactiveUserController::withETag);
+        }
+
+        Long expectedVersion = UserRequests.parseIfMatch(id, ifMatch);
+
+        userData.setId(id);
+
+        return validateUserMail(userData, true)
+                .then(Mono.fromRunnable(() -> validationTimer.record(() -> {
+                    validator.validateFirstName(userData);
+                    validator.validateLastName(userData);
+                    validator.validateAge(userData);
+                })))
+                .then(Mono.defer(() -> updateOrFail(service.replace(id, userData, expectedVersion))))
+                .map(ReactiveUserController::withETag);
+    }
+
+    @PatchMapping("/users/{id}")
+    public Mono<ResponseEntity<UserData>> editUser(@PathVariable("id") Long id, @RequestBody UserData userData,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = UserRequests.parseIfMatch(id, ifMatch);
+
+        validationTimer.record(() -> {
+            if (userData.getMail() != null) {
+                validator.validateMailFormat(userData);
+            }
+
+            if (userData.getBirthDate() != null) {
+                validator.validateAge(userData);
+            }
+        });
+
+        return updateOrFail(service.update(id, userData, expectedVersion))
+                .map(ReactiveUserController::withETag);
+    }
+
+    @DeleteMapping("/users/{id}")
+    public Mono<Void> deleteUser(@PathVariable("id") Long id) {
+        return service.deleteById(id);
+    }
+
+    private Mono<UserData> updateOrFail(Mono<UserData> update) {
+        return update
+                .switchIfEmpty(Mono.error(() -> new UserControllerBadRequestException("unknown user")))
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new UserControllerPreconditionFailedException("user was modified"))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new UserControllerBadRequestException("user with this email already exists"));
+    }
+
+    private static ResponseEntity<UserData> withETag(UserData data) {
+        return ResponseEntity.ok()
+                .eTag(UserRequests.userETag(data))
+                .body(data);
+    }
+
+    /**
+     * Tags a list with the table version. A matching {@code If-None-Match} turns the response into a 304 before
+     * {@code users} is subscribed to, so no query runs.
+     */
+    private ResponseEntity<Flux<UserData>> withTableETag(Flux<UserData> users) {
+        return ResponseEntity.ok()
+                .eTag(UserRequests.tableETag(service.getTableVersion()))
+                .body(users);
+    }
+
+    private void validatePageLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new UserControllerBadRequestException(
+                    String.format("limit value must be between 1 and %d", maxPageSize));
+        }
+    }
+
+    private Mono<UserData> validateAndInsertUser(UserData userData, boolean additionalMailCheck) {
+        return validateUserMail(userData, additionalMailCheck)
+                .then(Mono.fromRunnable(() -> validationTimer.record(() -> {
+                    validator.validateFirstName(userData);
+                    validator.validateLastName(userData);
+                    validator.validateAge(userData);
+                })))
+                .then(Mono.defer(() -> service.save(userData)))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new UserControllerBadRequestException("user with this email already exists"));
+    }
+
+    private Mono<Void> validateUserMail(UserData userData, boolean additionalCheck) {
+        return Mono.fromRunnable(() -> validationTimer.record(() -> validator.validateMailFormat(userData)))
+                .then(Mono.defer(() -> service.findByMail(userData.getMail())))
+                .filter(found -> !additionalCheck || !Objects.equals(userData.getId(), found.getId()))
+                .flatMap(found -> Mono.<Void>error(
+                        new UserControllerBadRequestException("user with this email already exists")));
+    }
+}
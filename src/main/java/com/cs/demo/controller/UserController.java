@@ -1,10 +1,32 @@
 package com.cs.demo.controller;
 
 import com.cs.demo.exception.UserControllerBadRequestException;
+import com.cs.demo.exception.UserControllerNotFoundException;
+import com.cs.demo.exception.UserControllerPreconditionFailedException;
+import com.cs.demo.exception.UserControllerTooManyRequestsException;
 import com.cs.demo.service.UserService;
 import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataBatchResult;
+import com.cs.demo.model.UserDataField;
+import com.cs.demo.model.UserDataLookup;
+import com.cs.demo.model.UserDataPage;
+import com.cs.demo.model.UserDataStats;
+import com.cs.demo.model.UserDataWriteStatus;
+import com.cs.demo.validator.UserDataValidator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -12,82 +34,400 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Pattern;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @RestController
+@Profile("!reactive")
 public class UserController {
 
-    private static final String MAIL_PATTERN_VALID_SYMBOLS_PART = "[a-z0-9!#$%&'*+/=?^_`{|}~-]+";
+    @Autowired
+    private UserService service;
 
-    private static final String MAIL_PATTERN_VALID_DOMAIN_PART = "[a-z0-9](?:[a-z0-9-]*[a-z0-9])?";
+    @Autowired
+    private UserDataValidator validator;
 
-    private static final Pattern MAIL_PATTERN = Pattern.compile(String.format("^%1$s(?:\\.%1$s)*@(?:%2$s\\.)+%2$s$",
-            MAIL_PATTERN_VALID_SYMBOLS_PART, MAIL_PATTERN_VALID_DOMAIN_PART));
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private UserService service;
+    private MeterRegistry meterRegistry;
 
-    @Value("${spring.application.minAge}")
-    private int minAge;
+    private Timer validationTimer;
+
+    @Value("${spring.application.maxPageSize}")
+    private int maxPageSize;
+
+    @Value("${spring.application.maxBatchSize}")
+    private int maxBatchSize;
+
+    @PostConstruct
+    void init() {
+        validationTimer = Timer.builder("user.validation")
+                .description("Validation of a user before it is saved")
+                .register(meterRegistry);
+    }
 
     @GetMapping(value = "/users")
-    public List<UserData> getAllUsers() {
+    public List<UserData> getAllUsers(WebRequest request) {
+        rejectCursorWithoutLimit(request);
+
+        if (request.checkNotModified(tableETag())) {
+            return null;
+        }
+
         return service.findAll();
     }
 
-    @GetMapping(value = "/users", params = {"from", "to"})
-    public List<UserData> getAllUsersByRange(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to) {
+    @GetMapping(value = "/users", params = {"from", "to", "!fields", "!limit", "!ids"})
+    public List<UserData> getAllUsersByRange(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to,
+                                             WebRequest request) {
         if (from.isAfter(to)) {
             throw new UserControllerBadRequestException("from value must be less than to value");
         }
 
+        rejectCursorWithoutLimit(request);
+
+        if (request.checkNotModified(tableETag())) {
+            return null;
+        }
+
         return service.findAllByRange(from, to);
     }
 
+    @GetMapping(value = "/users", params = {"fields", "!ids"})
+    public List<Map<String, Object>> getAllUsers(@RequestParam("fields") String fields, WebRequest request) {
+        rejectParams(request, "fields", "limit");
+        rejectCursorWithoutLimit(request);
+
+        List<UserDataField> parsedFields = parseFields(fields);
+
+        if (request.checkNotModified(tableETag())) {
+            return null;
+        }
+
+        return service.findAllProjected(parsedFields);
+    }
+
+    @GetMapping(value = "/users", params = {"from", "to", "fields", "!ids"})
+    public List<Map<String, Object>> getAllUsersByRange(@RequestParam("from") LocalDate from,
+                                                        @RequestParam("to") LocalDate to,
+                                                        @RequestParam("fields") String fields,
+                                                        WebRequest request) {
+        if (from.isAfter(to)) {
+            throw new UserControllerBadRequestException("from value must be less than to value");
+        }
+
+        rejectParams(request, "fields", "limit");
+        rejectCursorWithoutLimit(request);
+
+        List<UserDataField> parsedFields = parseFields(fields);
+
+        if (request.checkNotModified(tableETag())) {
+            return null;
+        }
+
+        return service.findAllProjectedByRange(from, to, parsedFields);
+    }
+
+    @GetMapping(value = "/users/count", params = {"from", "to"})
+    public long countUsersByRange(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new UserControllerBadRequestException("from value must be less than to value");
+        }
+
+        return service.countByRange(from, to);
+    }
+
+    @GetMapping(value = "/users/search", params = "q")
+    public List<UserData> searchUsers(@RequestParam("q") String query,
+                                      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        validatePageLimit(limit);
+
+        if (query.isBlank()) {
+            throw new UserControllerBadRequestException("unknown query value");
+        }
+
+        return service.search(query, limit);
+    }
+
+    @GetMapping(value = "/users/stats")
+    public UserDataStats getUsersStats() {
+        return service.getStats();
+    }
+
+    @GetMapping(value = "/users", params = {"limit", "!fields", "!ids"})
+    public UserDataPage getUsersPage(@RequestParam("limit") int limit,
+                                     @RequestParam(value = "cursor", required = false) String cursor) {
+        validatePageLimit(limit);
+
+        Long id = cursor != null ? UserRequests.parseCursorId(UserRequests.decodeCursor(cursor)) : Long.MIN_VALUE;
+        List<UserData> users = service.findAllAfter(id, limit + 1);
+
+        if (users.size() <= limit) {
+            return new UserDataPage(users, null);
+        }
+
+        users = users.subList(0, limit);
+        return new UserDataPage(users, UserRequests.encodeCursor(String.valueOf(users.get(limit - 1).getId())));
+    }
+
+    @GetMapping(value = "/users", params = {"from", "to", "limit", "!fields", "!ids"})
+    public UserDataPage getUsersPageByRange(@RequestParam("from") LocalDate from, @RequestParam("to") LocalDate to,
+                                            @RequestParam("limit") int limit,
+                                            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (from.isAfter(to)) {
+            throw new UserControllerBadRequestException("from value must be less than to value");
+        }
+
+        validatePageLimit(limit);
+
+        UserRequests.RangeCursor position = UserRequests.parseRangeCursor(cursor, from);
+        List<UserData> users = service.findAllByRangeAfter(position.birthDate(), to, position.id(), limit + 1);
+
+        if (users.size() <= limit) {
+            return new UserDataPage(users, null);
+        }
+
+        users = users.subList(0, limit);
+        return new UserDataPage(users, UserRequests.encodeRangeCursor(users.get(limit - 1)));
+    }
+
+    @GetMapping(value = "/users", params = "ids")
+    public UserDataLookup getUsersByIds(@RequestParam("ids") List<Long> ids, WebRequest request) {
+        rejectParams(request, "ids", "limit", "cursor", "fields", "from", "to");
+
+        if (ids.isEmpty() || ids.size() > maxPageSize) {
+            throw new UserControllerBadRequestException(
+                    String.format("ids count must be between 1 and %d", maxPageSize));
+        }
+
+        return lookupUsers(ids);
+    }
+
+    @PostMapping(value = "/users/lookup")
+    public UserDataLookup lookupUsersByIds(@RequestBody List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > maxBatchSize) {
+            throw new UserControllerBadRequestException(
+                    String.format("ids count must be between 1 and %d", maxBatchSize));
+        }
+
+        return lookupUsers(ids);
+    }
+
+    @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        ObjectWriter writer = objectMapper.writerFor(UserData.class);
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+
+                service.forEach(user -> {
+                    try {
+                        writer.writeValue(generator, user);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        });
+    }
+
     @GetMapping(value = "/users/{id}")
-    public UserData getUserById(@PathVariable("id") Long id) {
-        return service.findById(id)
+    public UserData getUserById(@PathVariable("id") Long id, WebRequest request) {
+        UserData data = service.findById(id)
+                .orElseThrow(() -> new UserControllerBadRequestException("unknown id"));
+
+        if (request.checkNotModified(UserRequests.userETag(data))) {
+            return null;
+        }
+
+        return data;
+    }
+
+    @GetMapping(value = "/users/{id}", params = "fields")
+    public Map<String, Object> getUserById(@PathVariable("id") Long id, @RequestParam("fields") String fields) {
+        return service.findProjectedById(id, parseFields(fields))
                 .orElseThrow(() -> new UserControllerBadRequestException("unknown id"));
     }
 
     @PostMapping(value = "/users")
     public UserData addUser(@RequestBody UserData userData) {
-        return validateAndInsertUser(userData, false);
+        validateUser(userData, false);
+
+        return insertUser(userData);
+    }
+
+    @PostMapping(value = "/users", headers = "Prefer")
+    public ResponseEntity<?> addUserAsync(@RequestBody UserData userData,
+                                          @RequestHeader("Prefer") String prefer) {
+        if (!service.isWriteBehindEnabled() || !prefer.contains("respond-async")) {
+            return ResponseEntity.ok(addUser(userData));
+        }
+
+        userData.setId(null);
+        validationTimer.record(() -> {
+            validateUserMail(userData, false);
+            validator.validateFirstName(userData);
+            validator.validateLastName(userData);
+            validator.validateAge(userData);
+        });
+
+        String ticket = service.saveLater(userData)
+                .orElseThrow(() -> new UserControllerTooManyRequestsException("too many pending users"));
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/users/pending/" + ticket))
+                .header("Preference-Applied", "respond-async")
+                .body(UserDataWriteStatus.pending(ticket));
+    }
+
+    @GetMapping(value = "/users/pending/{ticket}")
+    public UserDataWriteStatus getPendingUser(@PathVariable("ticket") String ticket) {
+        if (!service.isWriteBehindEnabled()) {
+            throw new UserControllerNotFoundException("unknown ticket");
+        }
+
+        return service.getWriteStatus(ticket)
+                .orElseThrow(() -> new UserControllerNotFoundException("unknown ticket"));
+    }
+
+    @PostMapping(value = "/users/batch")
+    public List<UserDataBatchResult> addUsers(@RequestBody List<UserData> users) {
+        if (users.isEmpty() || users.size() > maxBatchSize) {
+            throw new UserControllerBadRequestException(
+                    String.format("batch size must be between 1 and %d", maxBatchSize));
+        }
+
+        String[] errors = new String[users.size()];
+        Set<String> mails = new HashSet<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            UserData userData = users.get(i);
+
+            if (userData == null) {
+                errors[i] = "user must not be null";
+                continue;
+            }
+
+            try {
+                userData.setId(null);
+
+                validator.validateMailFormat(userData);
+                validator.validateFirstName(userData);
+                validator.validateLastName(userData);
+                validator.validateAge(userData);
+
+                if (!mails.add(userData.getMail())) {
+                    throw new UserControllerBadRequestException("user with this email is already in the batch");
+                }
+            } catch (UserControllerBadRequestException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+
+        Set<String> existingMails = service.findExistingMails(mails);
+        List<Integer> indexesToInsert = new ArrayList<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            if (errors[i] == null) {
+                if (existingMails.contains(users.get(i).getMail())) {
+                    errors[i] = "user with this email already exists";
+                } else {
+                    indexesToInsert.add(i);
+                }
+            }
+        }
+
+        try {
+            service.insertAll(indexesToInsert.stream().map(users::get).toList());
+        } catch (DataIntegrityViolationException e) {
+            // A mail taken after the check fails the whole batch, so it is retried user by user and only the
+            // offending users are rejected.
+            for (int i : indexesToInsert) {
+                errors[i] = insertOrReject(users.get(i));
+            }
+        }
+
+        List<UserDataBatchResult> results = new ArrayList<>(users.size());
+
+        for (int i = 0; i < users.size(); i++) {
+            results.add(errors[i] == null
+                    ? UserDataBatchResult.inserted(users.get(i).getId())
+                    : UserDataBatchResult.rejected(errors[i]));
+        }
+
+        return results;
     }
 
     @PutMapping(value = "/users/{id}")
-    public UserData updateUser(@PathVariable("id") Long id, @RequestBody UserData userData) {
-        service.findById(id).ifPresent(data ->
-                userData.setId(data.getId()));
+    public ResponseEntity<UserData> updateUser(@PathVariable("id") Long id, @RequestBody UserData userData,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch == null) {
+            userData.setId(id);
+            validateUser(userData, true);
+
+            // The current row is overwritten with a single UPDATE, and a user that does not exist is saved as a new one.
+            Optional<UserData> replaced = updateOrEmpty(() -> service.replace(id, userData, null));
+
+            if (replaced.isPresent()) {
+                return withETag(replaced.get());
+            }
+
+            userData.setId(null);
+
+            return withETag(insertUser(userData));
+        }
+
+        Long expectedVersion = UserRequests.parseIfMatch(id, ifMatch);
+
+        userData.setId(id);
+        validationTimer.record(() -> {
+            // A mail taken by another user is left to the unique constraint, as for PATCH.
+            validator.validateMailFormat(userData);
+            validator.validateFirstName(userData);
+            validator.validateLastName(userData);
+            validator.validateAge(userData);
+        });
 
-        return validateAndInsertUser(userData, true);
+        return withETag(updateOrFail(() -> service.replace(id, userData, expectedVersion), true));
     }
 
     @PatchMapping("/users/{id}")
-    public UserData editUser(@PathVariable("id") Long id, @RequestBody UserData userData) {
-        UserData data = service.findById(id).orElse(null);
+    public ResponseEntity<UserData> editUser(@PathVariable("id") Long id, @RequestBody UserData userData,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = UserRequests.parseIfMatch(id, ifMatch);
 
-        if (data == null) {
-            throw new UserControllerBadRequestException("unknown user");
-        }
+        validationTimer.record(() -> {
+            if (userData.getMail() != null) {
+                validator.validateMailFormat(userData);
+            }
 
-        data = UserData.Builder.basedAt(data)
-                .setId(data.getId())
-                .setMail(userData.getMail() != null ? userData.getMail() : data.getMail())
-                .setFirstName(userData.getFirstName() != null ? userData.getFirstName() : data.getFirstName())
-                .setLastName(userData.getLastName() != null ? userData.getLastName() : data.getLastName())
-                .setBirthDate(userData.getBirthDate() != null ? userData.getBirthDate() : data.getBirthDate())
-                .setAddress(userData.getAddress() != null ? userData.getAddress() : data.getAddress())
-                .setTel(userData.getTel() != null ? userData.getTel() : data.getTel())
-                .build();
+            if (userData.getBirthDate() != null) {
+                validator.validateAge(userData);
+            }
+        });
 
-        return validateAndInsertUser(data, true);
+        return withETag(updateOrFail(() -> service.update(id, userData, expectedVersion), ifMatch != null));
     }
 
     @DeleteMapping("/users/{id}")
@@ -95,69 +435,134 @@ public class UserController {
         service.deleteById(id);
     }
 
-    private UserData validateAndInsertUser(UserData userData, boolean additionalMailCheck) {
-        validateUserMail(userData, additionalMailCheck);
-        validateUserFirstName(userData);
-        validateUserLastName(userData);
-        validateUserAge(userData);
-
-        return service.save(userData);
-    }
+    private UserDataLookup lookupUsers(List<Long> ids) {
+        if (ids.contains(null)) {
+            throw new UserControllerBadRequestException("unknown id value");
+        }
 
-    private void validateUserMail(UserData userData, boolean additionalCheck) {
-        String mail = userData.getMail();
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, UserData> found = service.findAllById(requested);
+        List<UserData> content = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
 
-        if (mail == null) {
-            throw new UserControllerBadRequestException("unknown email value");
-        }
+        for (Long id : requested) {
+            UserData data = found.get(id);
 
-        if (!MAIL_PATTERN.matcher(mail).find()) {
-            throw new UserControllerBadRequestException("invalid email regex");
+            if (data != null) {
+                content.add(data);
+            } else {
+                missing.add(id);
+            }
         }
 
-        UserData userDataToFound = service.findByMail(mail).orElse(null);
+        return new UserDataLookup(content, missing);
+    }
 
-        if (userDataToFound != null) {
-            if (additionalCheck && Objects.equals(userData.getId(), userDataToFound.getId())) {
-                return;
-            }
+    /**
+     * Runs the update. A missing user fails a conditional request's precondition, as no current version can match.
+     */
+    private UserData updateOrFail(Supplier<Optional<UserData>> update, boolean conditional) {
+        return updateOrEmpty(update).orElseThrow(() -> conditional
+                ? new UserControllerPreconditionFailedException("unknown user")
+                : new UserControllerBadRequestException("unknown user"));
+    }
 
+    private Optional<UserData> updateOrEmpty(Supplier<Optional<UserData>> update) {
+        try {
+            return update.get();
+        } catch (OptimisticLockingFailureException e) {
+            throw new UserControllerPreconditionFailedException("user was modified");
+        } catch (DataIntegrityViolationException e) {
             throw new UserControllerBadRequestException("user with this email already exists");
         }
     }
 
-    private void validateUserFirstName(UserData userData) {
-        String firstName = userData.getFirstName();
+    private static ResponseEntity<UserData> withETag(UserData data) {
+        return ResponseEntity.ok()
+                .eTag(UserRequests.userETag(data))
+                .body(data);
+    }
+
+    private String insertOrReject(UserData userData) {
+        userData.setId(null);
+        userData.setVersion(null);
 
-        if (firstName == null) {
-            throw new UserControllerBadRequestException("unknown first name value");
+        try {
+            service.save(userData);
+            return null;
+        } catch (DataIntegrityViolationException e) {
+            return "user with this email already exists";
         }
     }
 
-    private void validateUserLastName(UserData userData) {
-        String lastName = userData.getLastName();
+    private String tableETag() {
+        return UserRequests.tableETag(service.getTableVersion());
+    }
 
-        if (lastName == null) {
-            throw new UserControllerBadRequestException("unknown last name value");
+    private List<UserDataField> parseFields(String fields) {
+        Set<UserDataField> result = new LinkedHashSet<>();
+
+        for (String field : fields.split(",")) {
+            result.add(UserDataField.fromAttribute(field.trim())
+                    .orElseThrow(() -> new UserControllerBadRequestException("unknown field value")));
         }
+
+        return List.copyOf(result);
     }
 
-    private void validateUserAge(UserData userData) {
-        LocalDate birthDate = userData.getBirthDate();
+    /**
+     * Rejects the parameters that cannot be combined with {@code param}, the one the handler is mapped by.
+     */
+    private static void rejectParams(WebRequest request, String param, String... rejected) {
+        for (String name : rejected) {
+            if (request.getParameter(name) != null) {
+                throw new UserControllerBadRequestException(
+                        String.format("%s cannot be combined with %s", param, name));
+            }
+        }
+    }
+
+    private static void rejectCursorWithoutLimit(WebRequest request) {
+        if (request.getParameter("cursor") != null) {
+            throw new UserControllerBadRequestException("cursor cannot be used without limit");
+        }
+    }
 
-        if (birthDate == null) {
-            throw new UserControllerBadRequestException("unknown birth date value");
+    private void validatePageLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new UserControllerBadRequestException(
+                    String.format("limit value must be between 1 and %d", maxPageSize));
         }
+    }
 
-        LocalDate date = LocalDate.now();
-        int age = date.minusYears(birthDate.getYear()).getYear();
+    private void validateUser(UserData userData, boolean additionalMailCheck) {
+        validationTimer.record(() -> {
+            validateUserMail(userData, additionalMailCheck);
+            validator.validateFirstName(userData);
+            validator.validateLastName(userData);
+            validator.validateAge(userData);
+        });
+    }
 
-        if (age < 0) {
-            throw new UserControllerBadRequestException("enter a valid birth date");
+    private UserData insertUser(UserData userData) {
+        try {
+            return service.save(userData);
+        } catch (DataIntegrityViolationException e) {
+            throw new UserControllerBadRequestException("user with this email already exists");
         }
+    }
 
-        if (age < minAge) {
-            throw new UserControllerBadRequestException("user`s age must be more than 18");
+    private void validateUserMail(UserData userData, boolean additionalCheck) {
+        validator.validateMailFormat(userData);
+
+        UserData userDataToFound = service.findByMail(userData.getMail()).orElse(null);
+
+        if (userDataToFound != null) {
+            if (additionalCheck && Objects.equals(userData.getId(), userDataToFound.getId())) {
+                return;
+            }
+
+            throw new UserControllerBadRequestException("user with this email already exists");
         }
     }
 }
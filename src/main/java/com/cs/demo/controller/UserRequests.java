@@ -0,0 +1,108 @@
+package com.cs.demo.controller;
+
+import com.cs.demo.exception.UserControllerBadRequestException;
+import com.cs.demo.exception.UserControllerPreconditionFailedException;
+import com.cs.demo.model.UserData;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor and validator formats shared by the servlet and the reactive controllers.
+ */
+final class UserRequests {
+
+    private UserRequests() {}
+
+    static String encodeCursor(String value) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new UserControllerBadRequestException("invalid cursor value");
+        }
+    }
+
+    static Long parseCursorId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new UserControllerBadRequestException("invalid cursor value");
+        }
+    }
+
+    /**
+     * Returns the position after which a page of users born in {@code [from, to)} starts. A null cursor, or one
+     * pointing before {@code from}, starts at the beginning of the range.
+     */
+    static RangeCursor parseRangeCursor(String cursor, LocalDate from) {
+        if (cursor == null) {
+            return new RangeCursor(from, Long.MIN_VALUE);
+        }
+
+        String value = decodeCursor(cursor);
+        int index = value.indexOf(':');
+
+        if (index < 0) {
+            throw new UserControllerBadRequestException("invalid cursor value");
+        }
+
+        LocalDate birthDate;
+
+        try {
+            birthDate = LocalDate.parse(value.substring(0, index));
+        } catch (DateTimeParseException e) {
+            throw new UserControllerBadRequestException("invalid cursor value");
+        }
+
+        Long id = parseCursorId(value.substring(index + 1));
+
+        if (birthDate.isBefore(from)) {
+            return new RangeCursor(from, Long.MIN_VALUE);
+        }
+
+        return new RangeCursor(birthDate, id);
+    }
+
+    static String encodeRangeCursor(UserData last) {
+        return encodeCursor(last.getBirthDate() + ":" + last.getId());
+    }
+
+    /**
+     * Returns the version expected by an {@code If-Match} header, or null when there is no precondition.
+     */
+    static Long parseIfMatch(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.equals("*")) {
+            return null;
+        }
+
+        String prefix = String.format("\"user-%d-", id);
+
+        if (ifMatch.startsWith(prefix) && ifMatch.endsWith("\"") && ifMatch.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(ifMatch, prefix.length(), ifMatch.length() - 1, 10);
+            } catch (NumberFormatException e) {
+                // falls through to the failed precondition
+            }
+        }
+
+        throw new UserControllerPreconditionFailedException("user was modified");
+    }
+
+    static String userETag(UserData data) {
+        return String.format("\"user-%d-%d\"", data.getId(), data.getVersion());
+    }
+
+    static String tableETag(String tableVersion) {
+        return String.format("\"users-%s\"", tableVersion);
+    }
+
+    record RangeCursor(LocalDate birthDate, Long id) {}
+}
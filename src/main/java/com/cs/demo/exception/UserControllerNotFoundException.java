@@ -0,0 +1,12 @@
+package com.cs.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.NOT_FOUND)
+public class UserControllerNotFoundException extends RuntimeException {
+
+    public UserControllerNotFoundException(String cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.cs.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.PRECONDITION_FAILED)
+public class UserControllerPreconditionFailedException extends RuntimeException {
+
+    public UserControllerPreconditionFailedException(String cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.cs.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+public class UserControllerTooManyRequestsException extends RuntimeException {
+
+    public UserControllerTooManyRequestsException(String cause) {
+        super(cause);
+    }
+}
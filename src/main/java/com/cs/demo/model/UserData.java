@@ -1,20 +1,32 @@
 package com.cs.demo.model;
 
+import com.cs.demo.repository.UserDataListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 import java.time.LocalDate;
 
-@Table
+@Table(indexes = @Index(name = "user_data_birth_date_idx", columnList = "birthDate, id"))
 @Entity
+@EntityListeners(UserDataListener.class)
 public class UserData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_data_seq")
+    @SequenceGenerator(name = "user_data_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -35,6 +47,12 @@ public class UserData {
     @Column
     private String tel;
 
+    @Version
+    private Long version;
+
+    @Transient
+    private LocalDate persistedBirthDate;
+
     public UserData() {}
 
     private UserData(Builder builder) {
@@ -45,6 +63,7 @@ public class UserData {
         this.birthDate = builder.birthDate;
         this.address = builder.address;
         this.tel = builder.tel;
+        this.version = builder.version;
     }
 
     public Long getId() {
@@ -79,6 +98,31 @@ public class UserData {
         return tel;
     }
 
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Birth date as last loaded from or written to the database, so entity listeners can tell what an update changed.
+     */
+    @JsonIgnore
+    public LocalDate getPersistedBirthDate() {
+        return persistedBirthDate;
+    }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    private void rememberPersistedState() {
+        persistedBirthDate = birthDate;
+    }
+
     public static class Builder {
 
         private Long id;
@@ -95,6 +139,8 @@ public class UserData {
 
         private String tel;
 
+        private Long version;
+
         private Builder() {}
 
         public Builder setId(Long id) {
@@ -132,6 +178,11 @@ public class UserData {
             return this;
         }
 
+        public Builder setVersion(Long version) {
+            this.version = version;
+            return this;
+        }
+
         public UserData build() {
             return new UserData(this);
         }
@@ -140,6 +191,9 @@ public class UserData {
             return new Builder();
         }
 
+        /**
+         * Copies everything but the version, so the result can be saved as a new user or as a full update.
+         */
         public static Builder basedAt(UserData data) {
             return new Builder()
                     .setId(data.id)
@@ -0,0 +1,29 @@
+package com.cs.demo.model;
+
+public class UserDataBatchResult {
+
+    private final Long id;
+
+    private final String error;
+
+    private UserDataBatchResult(Long id, String error) {
+        this.id = id;
+        this.error = error;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public static UserDataBatchResult inserted(Long id) {
+        return new UserDataBatchResult(id, null);
+    }
+
+    public static UserDataBatchResult rejected(String error) {
+        return new UserDataBatchResult(null, error);
+    }
+}
@@ -0,0 +1,42 @@
+package com.cs.demo.model;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+public enum UserDataField {
+
+    ID("id", UserData::getId),
+    MAIL("mail", UserData::getMail),
+    FIRST_NAME("firstName", UserData::getFirstName),
+    LAST_NAME("lastName", UserData::getLastName),
+    BIRTH_DATE("birthDate", UserData::getBirthDate),
+    ADDRESS("address", UserData::getAddress),
+    TEL("tel", UserData::getTel);
+
+    private final String attribute;
+
+    private final Function<UserData, Object> getter;
+
+    UserDataField(String attribute, Function<UserData, Object> getter) {
+        this.attribute = attribute;
+        this.getter = getter;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public Object getValue(UserData data) {
+        return getter.apply(data);
+    }
+
+    public static Optional<UserDataField> fromAttribute(String attribute) {
+        for (UserDataField field : values()) {
+            if (field.attribute.equals(attribute)) {
+                return Optional.of(field);
+            }
+        }
+
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.cs.demo.model;
+
+import java.util.List;
+
+public class UserDataLookup {
+
+    private final List<UserData> content;
+
+    private final List<Long> missing;
+
+    public UserDataLookup(List<UserData> content, List<Long> missing) {
+        this.content = content;
+        this.missing = missing;
+    }
+
+    public List<UserData> getContent() {
+        return content;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
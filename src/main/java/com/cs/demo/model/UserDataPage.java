@@ -0,0 +1,23 @@
+package com.cs.demo.model;
+
+import java.util.List;
+
+public class UserDataPage {
+
+    private final List<UserData> content;
+
+    private final String next;
+
+    public UserDataPage(List<UserData> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<UserData> getContent() {
+        return content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
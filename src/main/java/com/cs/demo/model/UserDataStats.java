@@ -0,0 +1,30 @@
+package com.cs.demo.model;
+
+import java.util.Map;
+
+public class UserDataStats {
+
+    private final long total;
+
+    private final Map<Integer, Long> byBirthYear;
+
+    private final Map<String, Long> byAge;
+
+    public UserDataStats(long total, Map<Integer, Long> byBirthYear, Map<String, Long> byAge) {
+        this.total = total;
+        this.byBirthYear = byBirthYear;
+        this.byAge = byAge;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<Integer, Long> getByBirthYear() {
+        return byBirthYear;
+    }
+
+    public Map<String, Long> getByAge() {
+        return byAge;
+    }
+}
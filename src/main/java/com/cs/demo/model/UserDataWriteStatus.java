@@ -0,0 +1,53 @@
+package com.cs.demo.model;
+
+public class UserDataWriteStatus {
+
+    public enum State {
+        PENDING,
+        INSERTED,
+        REJECTED
+    }
+
+    private final String ticket;
+
+    private final State state;
+
+    private final Long id;
+
+    private final String error;
+
+    private UserDataWriteStatus(String ticket, State state, Long id, String error) {
+        this.ticket = ticket;
+        this.state = state;
+        this.id = id;
+        this.error = error;
+    }
+
+    public String getTicket() {
+        return ticket;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public static UserDataWriteStatus pending(String ticket) {
+        return new UserDataWriteStatus(ticket, State.PENDING, null, null);
+    }
+
+    public static UserDataWriteStatus inserted(String ticket, Long id) {
+        return new UserDataWriteStatus(ticket, State.INSERTED, id, null);
+    }
+
+    public static UserDataWriteStatus rejected(String ticket, String error) {
+        return new UserDataWriteStatus(ticket, State.REJECTED, null, error);
+    }
+}
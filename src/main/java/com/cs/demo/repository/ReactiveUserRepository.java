@@ -0,0 +1,194 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * R2DBC access to the {@code user_data} table for the reactive stack, with the same queries as {@link UserRepository}.
+ * <p>
+ * {@link UserData} is a JPA entity, so rows are mapped by hand rather than through Spring Data R2DBC, which would not
+ * honour its JPA annotations. Updates follow {@link UserRepositoryImpl}: a single {@code UPDATE} that increments the
+ * version and, with an expected version, only touches the row while it still has that version.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String COLUMNS = "id, mail, first_name, last_name, birth_date, address, tel, version";
+
+    @Autowired
+    private DatabaseClient client;
+
+    public Flux<UserData> findAll() {
+        return client.sql("SELECT " + COLUMNS + " FROM user_data ORDER BY id")
+                .map(ReactiveUserRepository::toUserData)
+                .all();
+    }
+
+    public Flux<UserData> findAllByRange(LocalDate from, LocalDate to) {
+        return client.sql("SELECT " + COLUMNS + " FROM user_data WHERE :from <= birth_date AND birth_date < :to " +
+                        "ORDER BY birth_date, id")
+                .bind("from", from)
+                .bind("to", to)
+                .map(ReactiveUserRepository::toUserData)
+                .all();
+    }
+
+    public Flux<UserData> findAllAfter(Long id, int limit) {
+        return client.sql("SELECT " + COLUMNS + " FROM user_data WHERE id > :id ORDER BY id LIMIT :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUserData)
+                .all();
+    }
+
+    public Flux<UserData> findAllByRangeAfter(LocalDate birthDate, LocalDate to, Long id, int limit) {
+        return client.sql("SELECT " + COLUMNS + " FROM user_data WHERE :birthDate <= birth_date AND birth_date < :to " +
+                        "AND (birth_date > :birthDate OR id > :id) ORDER BY birth_date, id LIMIT :limit")
+                .bind("birthDate", birthDate)
+                .bind("to", to)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUserData)
+                .all();
+    }
+
+    public Mono<UserData> findById(Long id) {
+        return client.sql("SELECT " + COLUMNS + " FROM user_data WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUserData)
+                .one();
+    }
+
+    public Mono<UserData> findByMail(String mail) {
+        return client.sql("SELECT " + COLUMNS + " FROM user_data WHERE mail = :mail")
+                .bind("mail", mail)
+                .map(ReactiveUserRepository::toUserData)
+                .one();
+    }
+
+    public Mono<Long> findVersionById(Long id) {
+        return client.sql("SELECT version FROM user_data WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    /**
+     * Inserts {@code data} with an id taken from the sequence and version 0, and returns the stored user.
+     */
+    public Mono<UserData> insert(UserData data) {
+        DatabaseClient.GenericExecuteSpec spec = client.sql("INSERT INTO user_data (" + COLUMNS + ") " +
+                "VALUES (NEXT VALUE FOR user_data_seq, :mail, :firstName, :lastName, :birthDate, :address, :tel, 0)");
+
+        return bindAll(spec, data)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> UserData.Builder.basedAt(data)
+                        .setId(id)
+                        .setVersion(0L)
+                        .build());
+    }
+
+    public Mono<Integer> updateNonNullFields(Long id, UserData changes, Long expectedVersion) {
+        List<String> assignments = new ArrayList<>();
+
+        addIfNotNull(assignments, "mail", "mail", changes.getMail());
+        addIfNotNull(assignments, "first_name", "firstName", changes.getFirstName());
+        addIfNotNull(assignments, "last_name", "lastName", changes.getLastName());
+        addIfNotNull(assignments, "birth_date", "birthDate", changes.getBirthDate());
+        addIfNotNull(assignments, "address", "address", changes.getAddress());
+        addIfNotNull(assignments, "tel", "tel", changes.getTel());
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(update(assignments, expectedVersion))
+                .bind("id", id);
+
+        spec = bindIfNotNull(spec, "mail", changes.getMail());
+        spec = bindIfNotNull(spec, "firstName", changes.getFirstName());
+        spec = bindIfNotNull(spec, "lastName", changes.getLastName());
+        spec = bindIfNotNull(spec, "birthDate", changes.getBirthDate());
+        spec = bindIfNotNull(spec, "address", changes.getAddress());
+        spec = bindIfNotNull(spec, "tel", changes.getTel());
+        spec = bindIfNotNull(spec, "expectedVersion", expectedVersion);
+
+        return spec.fetch().rowsUpdated().map(Long::intValue);
+    }
+
+    public Mono<Integer> updateAllFields(Long id, UserData data, Long expectedVersion) {
+        List<String> assignments = List.of("mail = :mail", "first_name = :firstName", "last_name = :lastName",
+                "birth_date = :birthDate", "address = :address", "tel = :tel");
+        DatabaseClient.GenericExecuteSpec spec = bindAll(client.sql(update(assignments, expectedVersion)), data)
+                .bind("id", id);
+
+        return bindIfNotNull(spec, "expectedVersion", expectedVersion)
+                .fetch()
+                .rowsUpdated()
+                .map(Long::intValue);
+    }
+
+    public Mono<Void> deleteById(Long id) {
+        return client.sql("DELETE FROM user_data WHERE id = :id")
+                .bind("id", id)
+                .then();
+    }
+
+    public Mono<Void> deleteAll() {
+        return client.sql("DELETE FROM user_data")
+                .then();
+    }
+
+    private static String update(List<String> assignments, Long expectedVersion) {
+        return "UPDATE user_data SET " + String.join(", ", assignments) + ", version = version + 1 WHERE id = :id"
+                + (expectedVersion != null ? " AND version = :expectedVersion" : "");
+    }
+
+    private static void addIfNotNull(List<String> assignments, String column, String parameter, Object value) {
+        if (value != null) {
+            assignments.add(column + " = :" + parameter);
+        }
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindAll(DatabaseClient.GenericExecuteSpec spec, UserData data) {
+        return bind(bind(bind(bind(bind(bind(spec,
+                "mail", data.getMail(), String.class),
+                "firstName", data.getFirstName(), String.class),
+                "lastName", data.getLastName(), String.class),
+                "birthDate", data.getBirthDate(), LocalDate.class),
+                "address", data.getAddress(), String.class),
+                "tel", data.getTel(), String.class);
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                              T value, Class<T> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindIfNotNull(DatabaseClient.GenericExecuteSpec spec,
+                                                                   String name, Object value) {
+        return value != null ? spec.bind(name, value) : spec;
+    }
+
+    private static UserData toUserData(Readable row) {
+        return UserData.Builder.fromScratch()
+                .setId(row.get("id", Long.class))
+                .setMail(row.get("mail", String.class))
+                .setFirstName(row.get("first_name", String.class))
+                .setLastName(row.get("last_name", String.class))
+                .setBirthDate(row.get("birth_date", LocalDate.class))
+                .setAddress(row.get("address", String.class))
+                .setTel(row.get("tel", String.class))
+                .setVersion(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,215 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataField;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Puts {@link UserRepository} on top of {@link UserReplicas}, so {@code UserService} works unchanged with the
+ * {@code replicated} profile.
+ * <p>
+ * The queries behind the read endpoints may run on a replica. Lookups that decide a write, such as the version, the
+ * existence or the locked row of a user, and the full scans the indexes are built from stay on the primary, and so
+ * does everything run in a transaction that writes. Every write tells {@link UserReplicas} how it completed.
+ */
+public class ReplicatedUserRepository implements UserRepository {
+
+    private final UserRepository repository;
+
+    private final UserReplicas replicas;
+
+    public ReplicatedUserRepository(UserRepository repository, UserReplicas replicas) {
+        this.repository = repository;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public <S extends UserData> S save(S data) {
+        return replicas.write(() -> repository.save(data));
+    }
+
+    @Override
+    public <S extends UserData> List<S> saveAll(Iterable<S> data) {
+        return replicas.write(() -> repository.saveAll(data));
+    }
+
+    @Override
+    public Optional<UserData> findById(Long id) {
+        return replicas.read(() -> repository.findById(id));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return repository.existsById(id);
+    }
+
+    @Override
+    public List<UserData> findAll() {
+        return replicas.read(repository::findAll);
+    }
+
+    @Override
+    public List<UserData> findAllById(Iterable<Long> ids) {
+        return replicas.read(() -> repository.findAllById(ids));
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        write(() -> repository.deleteById(id));
+    }
+
+    @Override
+    public void delete(UserData data) {
+        write(() -> repository.delete(data));
+    }
+
+    @Override
+    public void deleteAll() {
+        write(repository::deleteAll);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        write(repository::deleteAllInBatch);
+    }
+
+    @Override
+    public Optional<UserData> findByMail(String mail) {
+        return replicas.read(() -> repository.findByMail(mail));
+    }
+
+    @Override
+    public List<String> findMailsIn(Collection<String> mails) {
+        return repository.findMailsIn(mails);
+    }
+
+    @Override
+    public List<UserData> fillAllByRange(LocalDate from, LocalDate to) {
+        return replicas.read(() -> repository.fillAllByRange(from, to));
+    }
+
+    @Override
+    public List<UserData> findAllByNameContaining(String query, Limit limit) {
+        return replicas.read(() -> repository.findAllByNameContaining(query, limit));
+    }
+
+    @Override
+    public List<UserData> findAllAfter(Long id, Limit limit) {
+        return replicas.read(() -> repository.findAllAfter(id, limit));
+    }
+
+    @Override
+    public List<UserData> findAllByRangeAfter(LocalDate birthDate, LocalDate to, Long id, Limit limit) {
+        return replicas.read(() -> repository.findAllByRangeAfter(birthDate, to, id, limit));
+    }
+
+    @Override
+    public Stream<UserData> streamAll() {
+        return replicas.read(repository::streamAll);
+    }
+
+    @Override
+    public Stream<String> streamAllMails() {
+        return repository.streamAllMails();
+    }
+
+    @Override
+    public Stream<Object[]> streamAllNames() {
+        return repository.streamAllNames();
+    }
+
+    @Override
+    public Stream<Object[]> streamAllBirthDates() {
+        return repository.streamAllBirthDates();
+    }
+
+    @Override
+    public List<Object[]> findNamesAfter(Long id, Limit limit) {
+        return repository.findNamesAfter(id, limit);
+    }
+
+    @Override
+    public List<Object[]> findBirthDates(Limit limit) {
+        return repository.findBirthDates(limit);
+    }
+
+    @Override
+    public List<Object[]> findBirthDatesAfter(LocalDate birthDate, Long id, Limit limit) {
+        return repository.findBirthDatesAfter(birthDate, id, limit);
+    }
+
+    @Override
+    public long countByRange(LocalDate from, LocalDate to) {
+        return replicas.read(() -> repository.countByRange(from, to));
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        return repository.findVersionById(id);
+    }
+
+    @Override
+    public List<Object[]> countByBirthYear() {
+        return repository.countByBirthYear();
+    }
+
+    @Override
+    public int updateNonNullFields(Long id, UserData changes, Long expectedVersion) {
+        return replicas.write(() -> repository.updateNonNullFields(id, changes, expectedVersion));
+    }
+
+    @Override
+    public int updateAllFields(Long id, UserData data, Long expectedVersion) {
+        return replicas.write(() -> repository.updateAllFields(id, data, expectedVersion));
+    }
+
+    @Override
+    public Optional<UserData> findForUpdateById(Long id) {
+        return repository.findForUpdateById(id);
+    }
+
+    @Override
+    public List<UserData> persistAll(List<UserData> data) {
+        return replicas.write(() -> repository.persistAll(data));
+    }
+
+    @Override
+    public void insertWithId(UserData data) {
+        write(() -> repository.insertWithId(data));
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjected(List<UserDataField> fields) {
+        return replicas.read(() -> repository.findAllProjected(fields));
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjectedByRange(LocalDate from, LocalDate to,
+                                                             List<UserDataField> fields) {
+        return replicas.read(() -> repository.findAllProjectedByRange(from, to, fields));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findProjectedById(Long id, List<UserDataField> fields) {
+        return replicas.read(() -> repository.findProjectedById(id, fields));
+    }
+
+    private void write(Runnable action) {
+        replicas.write(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
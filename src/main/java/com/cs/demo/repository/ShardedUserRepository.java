@@ -0,0 +1,590 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataField;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Puts {@link UserRepository} on top of {@link UserShards}, so {@code UserService} and the indexes work unchanged with
+ * the {@code sharded} profile.
+ * <p>
+ * Calls for one user go to the shard of its id, or for a mail to the shard {@link UserShardDirectory} has for it.
+ * Queries over all users run on every shard in parallel, and the sorted results are merged in the same order. Streams
+ * over all users read keyset pages of every shard instead, so no shard is loaded into memory at once. New users get
+ * their id from the directory's sequence and are written with {@link UserRepository#insertWithId}, which skips
+ * {@link UserDataListener}, so its persist callback is invoked explicitly.
+ */
+public class ShardedUserRepository implements UserRepository {
+
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    private static final Comparator<UserData> BY_ID = Comparator.comparing(UserData::getId);
+
+    private static final Comparator<UserData> BY_BIRTH_DATE = Comparator.comparing(UserData::getBirthDate)
+            .thenComparing(UserData::getId);
+
+    private static final Comparator<Object[]> ROWS_BY_BIRTH_DATE = Comparator.<Object[], LocalDate>comparing(
+            row -> (LocalDate) row[0]).thenComparing(row -> (Long) row[1]);
+
+    private static final Comparator<Map<String, Object>> PROJECTIONS_BY_BIRTH_DATE =
+            Comparator.<Map<String, Object>, LocalDate>comparing(
+                    values -> (LocalDate) values.get(UserDataField.BIRTH_DATE.getAttribute()))
+            .thenComparing(values -> (Long) values.get(UserDataField.ID.getAttribute()));
+
+    private static final Comparator<Object[]> ROWS_BY_ID = Comparator.comparing(row -> (Long) row[0]);
+
+    private final UserRepository repository;
+
+    private final UserShards shards;
+
+    private final UserShardDirectory directory;
+
+    private final UserDataListener listener;
+
+    public ShardedUserRepository(UserRepository repository, UserShards shards, UserShardDirectory directory,
+                                 UserDataListener listener) {
+        this.repository = repository;
+        this.shards = shards;
+        this.directory = directory;
+        this.listener = listener;
+    }
+
+    @Override
+    public Optional<UserData> findById(Long id) {
+        return onShardOf(id, () -> repository.findById(id));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return onShardOf(id, () -> repository.existsById(id));
+    }
+
+    @Override
+    public Optional<UserData> findForUpdateById(Long id) {
+        return onShardOf(id, () -> repository.findForUpdateById(id));
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        return onShardOf(id, () -> repository.findVersionById(id));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findProjectedById(Long id, List<UserDataField> fields) {
+        return onShardOf(id, () -> repository.findProjectedById(id, fields));
+    }
+
+    @Override
+    public Optional<UserData> findByMail(String mail) {
+        return directory.findShard(mail)
+                .flatMap(shard -> shards.on(shard, () -> repository.findByMail(mail)));
+    }
+
+    @Override
+    public List<String> findMailsIn(Collection<String> mails) {
+        return directory.findMailsIn(mails);
+    }
+
+    @Override
+    public List<UserData> findAllById(Iterable<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+
+        for (Long id : ids) {
+            idsByShard.computeIfAbsent(shards.shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+
+        if (idsByShard.isEmpty()) {
+            return List.of();
+        }
+
+        return concat(shards.scatter(idsByShard.keySet(),
+                shard -> shards.read(shard, () -> repository.findAllById(idsByShard.get(shard)))));
+    }
+
+    /**
+     * Merges the shards in id order, as {@link UserRepository#findAllAfter} returns each of them in that order.
+     */
+    @Override
+    public List<UserData> findAll() {
+        return merge(gather(() -> repository.findAllAfter(Long.MIN_VALUE, Limit.unlimited())), BY_ID,
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<UserData> fillAllByRange(LocalDate from, LocalDate to) {
+        return merge(gather(() -> repository.fillAllByRange(from, to)), BY_BIRTH_DATE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<UserData> findAllByNameContaining(String query, Limit limit) {
+        return merge(gather(() -> repository.findAllByNameContaining(query, limit)), BY_ID, limit.max());
+    }
+
+    @Override
+    public List<UserData> findAllAfter(Long id, Limit limit) {
+        return merge(gather(() -> repository.findAllAfter(id, limit)), BY_ID, limit.max());
+    }
+
+    @Override
+    public List<UserData> findAllByRangeAfter(LocalDate birthDate, LocalDate to, Long id, Limit limit) {
+        return merge(gather(() -> repository.findAllByRangeAfter(birthDate, to, id, limit)), BY_BIRTH_DATE,
+                limit.max());
+    }
+
+    @Override
+    public List<Object[]> findNamesAfter(Long id, Limit limit) {
+        return merge(gather(() -> repository.findNamesAfter(id, limit)), ROWS_BY_ID, limit.max());
+    }
+
+    @Override
+    public List<Object[]> findBirthDates(Limit limit) {
+        return merge(gather(() -> repository.findBirthDates(limit)), ROWS_BY_BIRTH_DATE, limit.max());
+    }
+
+    @Override
+    public List<Object[]> findBirthDatesAfter(LocalDate birthDate, Long id, Limit limit) {
+        return merge(gather(() -> repository.findBirthDatesAfter(birthDate, id, limit)), ROWS_BY_BIRTH_DATE,
+                limit.max());
+    }
+
+    @Override
+    public long count() {
+        return this.<Long>gather(repository::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public long countByRange(LocalDate from, LocalDate to) {
+        return this.<Long>gather(() -> repository.countByRange(from, to)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<Object[]> countByBirthYear() {
+        Map<Integer, Long> counts = new TreeMap<>();
+
+        for (List<Object[]> rows : gather(repository::countByBirthYear)) {
+            for (Object[] row : rows) {
+                counts.merge(((Number) row[0]).intValue(), ((Number) row[1]).longValue(), Long::sum);
+            }
+        }
+
+        return counts.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
+                .toList();
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjected(List<UserDataField> fields) {
+        return concat(gather(() -> repository.findAllProjected(fields)));
+    }
+
+    /**
+     * Merging needs the birth date and id of every row, so they are selected as well and removed again if they were
+     * not asked for.
+     */
+    @Override
+    public List<Map<String, Object>> findAllProjectedByRange(LocalDate from, LocalDate to,
+                                                             List<UserDataField> fields) {
+        List<UserDataField> sortFields = new ArrayList<>(fields);
+
+        for (UserDataField field : List.of(UserDataField.BIRTH_DATE, UserDataField.ID)) {
+            if (!sortFields.contains(field)) {
+                sortFields.add(field);
+            }
+        }
+
+        List<Map<String, Object>> result = merge(gather(() -> repository.findAllProjectedByRange(from, to, sortFields)),
+                PROJECTIONS_BY_BIRTH_DATE, Integer.MAX_VALUE);
+
+        if (sortFields.size() > fields.size()) {
+            List<String> attributes = fields.stream().map(UserDataField::getAttribute).toList();
+
+            result.forEach(values -> values.keySet().retainAll(attributes));
+        }
+
+        return result;
+    }
+
+    @Override
+    public Stream<UserData> streamAll() {
+        return stream(merge(pages(shard -> last -> shards.read(shard, () -> repository.findAllAfter(
+                        last == null ? Long.MIN_VALUE : last.getId(), Limit.of(STREAM_PAGE_SIZE)))),
+                BY_ID));
+    }
+
+    @Override
+    public Stream<String> streamAllMails() {
+        return directory.streamAllMails();
+    }
+
+    @Override
+    public Stream<Object[]> streamAllNames() {
+        return stream(chain(pages(shard -> last -> shards.read(shard, () -> repository.findNamesAfter(
+                last == null ? Long.MIN_VALUE : (Long) last[0], Limit.of(STREAM_PAGE_SIZE))))));
+    }
+
+    @Override
+    public Stream<Object[]> streamAllBirthDates() {
+        return stream(merge(pages(shard -> last -> shards.read(shard, () -> last == null
+                        ? repository.findBirthDates(Limit.of(STREAM_PAGE_SIZE))
+                        : repository.findBirthDatesAfter((LocalDate) last[0], (Long) last[1],
+                                Limit.of(STREAM_PAGE_SIZE)))),
+                ROWS_BY_BIRTH_DATE));
+    }
+
+    @Override
+    public int updateNonNullFields(Long id, UserData changes, Long expectedVersion) {
+        return update(id, changes, () -> repository.updateNonNullFields(id, changes, expectedVersion));
+    }
+
+    @Override
+    public int updateAllFields(Long id, UserData data, Long expectedVersion) {
+        return update(id, data, () -> repository.updateAllFields(id, data, expectedVersion));
+    }
+
+    /**
+     * Inserts a new user, or a user whose id is not taken yet, with {@link UserRepository#insertWithId}, and merges
+     * any other. The mail is claimed first if it changes, and the mail that is no longer used is released once the
+     * transaction completes.
+     */
+    @Override
+    public <S extends UserData> S save(S data) {
+        boolean isNew = data.getId() == null;
+
+        if (isNew) {
+            data.setId(directory.nextIds(1)[0]);
+        }
+
+        int shard = shards.shardOf(data.getId());
+
+        try {
+            return shards.on(shard, () -> {
+                String previousMail = isNew ? null
+                        : repository.findForUpdateById(data.getId()).map(UserData::getMail).orElse(null);
+
+                if (!data.getMail().equals(previousMail)) {
+                    directory.claim(data.getMail(), shard);
+                    afterCompletion(committed -> {
+                        String unusedMail = committed ? previousMail : data.getMail();
+
+                        if (unusedMail != null) {
+                            directory.release(unusedMail);
+                        }
+                    });
+                }
+
+                if (previousMail != null) {
+                    return repository.save(data);
+                }
+
+                repository.insertWithId(data);
+                listener.onPersist(data);
+
+                return data;
+            });
+        } catch (RuntimeException e) {
+            if (isNew) {
+                data.setId(null);
+                data.setVersion(null);
+            }
+
+            throw e;
+        }
+    }
+
+    @Override
+    public <S extends UserData> List<S> saveAll(Iterable<S> data) {
+        List<S> result = new ArrayList<>();
+
+        data.forEach(user -> result.add(save(user)));
+
+        return result;
+    }
+
+    @Override
+    public void insertWithId(UserData data) {
+        onShardOf(data.getId(), () -> {
+            repository.insertWithId(data);
+            return null;
+        });
+    }
+
+    /**
+     * Inserts the users on all shards at once. Their mails are claimed together up front, and the shards commit only
+     * if every one of them succeeded.
+     */
+    @Override
+    public List<UserData> persistAll(List<UserData> data) {
+        if (data.isEmpty()) {
+            return data;
+        }
+
+        long[] ids = directory.nextIds(data.size());
+        Map<Integer, List<UserData>> usersByShard = new TreeMap<>();
+
+        for (int i = 0; i < data.size(); i++) {
+            data.get(i).setId(ids[i]);
+            usersByShard.computeIfAbsent(shards.shardOf(ids[i]), shard -> new ArrayList<>()).add(data.get(i));
+        }
+
+        try {
+            directory.claimAll(usersByShard);
+        } catch (RuntimeException e) {
+            data.forEach(user -> user.setId(null));
+            throw e;
+        }
+
+        try {
+            shards.writeAll(usersByShard, users -> users.forEach(user -> {
+                repository.insertWithId(user);
+                listener.onPersist(user);
+            }));
+        } catch (RuntimeException e) {
+            directory.releaseAll(data.stream().map(UserData::getMail).toList());
+            data.forEach(user -> {
+                user.setId(null);
+                user.setVersion(null);
+            });
+            throw e;
+        }
+
+        return data;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        onShardOf(id, () -> {
+            repository.findById(id).ifPresent(user -> {
+                repository.delete(user);
+                afterCompletion(committed -> {
+                    if (committed) {
+                        directory.release(user.getMail());
+                    }
+                });
+            });
+
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(UserData data) {
+        deleteById(data.getId());
+    }
+
+    @Override
+    public void deleteAll() {
+        shards.scatter(shard -> shards.on(shard, () -> {
+            repository.deleteAll();
+            return null;
+        }));
+        directory.clear();
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        shards.scatter(shard -> shards.on(shard, () -> {
+            repository.deleteAllInBatch();
+            return null;
+        }));
+        directory.clear();
+    }
+
+    private <T> T onShardOf(Long id, Supplier<T> action) {
+        return shards.on(shards.shardOf(id), action);
+    }
+
+    /**
+     * Runs the update on the shard of the user. A new mail is claimed first; the old one is released once the update
+     * commits, and the new one if it does not. The old mail is read with the row locked, so concurrent updates of the
+     * same user each release the mail they actually replaced.
+     */
+    private int update(Long id, UserData changes, Supplier<Integer> update) {
+        return onShardOf(id, () -> {
+            String mail = changes.getMail();
+            String previousMail = mail == null ? null
+                    : repository.findForUpdateById(id).map(UserData::getMail).orElse(null);
+
+            if (previousMail == null || previousMail.equals(mail)) {
+                return update.get();
+            }
+
+            directory.claim(mail, shards.shardOf(id));
+
+            int updated;
+
+            try {
+                updated = update.get();
+            } catch (RuntimeException e) {
+                directory.release(mail);
+                throw e;
+            }
+
+            if (updated == 0) {
+                directory.release(mail);
+            } else {
+                afterCompletion(committed -> directory.release(committed ? previousMail : mail));
+            }
+
+            return updated;
+        });
+    }
+
+    private <T> List<T> gather(Supplier<T> query) {
+        return shards.scatter(shard -> shards.read(shard, query));
+    }
+
+    /**
+     * Keyset pages of every shard: {@code query} gets the shard and returns the page after the given last row, or
+     * the first page for {@code null}.
+     */
+    private <T> List<Iterator<T>> pages(IntFunction<Function<T, List<T>>> query) {
+        return IntStream.range(0, shards.getShardCount())
+                .mapToObj(shard -> paged(query.apply(shard)))
+                .toList();
+    }
+
+    private static <T> Iterator<T> paged(Function<T, List<T>> query) {
+        return new Iterator<>() {
+
+            private Iterator<T> page = List.<T>of().iterator();
+
+            private T last;
+
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !exhausted) {
+                    List<T> values = query.apply(last);
+
+                    exhausted = values.size() < STREAM_PAGE_SIZE;
+                    page = values.iterator();
+
+                    if (!values.isEmpty()) {
+                        last = values.get(values.size() - 1);
+                    }
+                }
+
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return page.next();
+            }
+        };
+    }
+
+    private static <T> Stream<T> stream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static <T> List<T> concat(List<? extends List<T>> lists) {
+        List<T> result = new ArrayList<>(lists.stream().mapToInt(List::size).sum());
+
+        lists.forEach(result::addAll);
+
+        return result;
+    }
+
+    /**
+     * The iterators one after the other.
+     */
+    private static <T> Iterator<T> chain(List<? extends Iterator<T>> iterators) {
+        return iterators.stream()
+                .flatMap(ShardedUserRepository::stream)
+                .iterator();
+    }
+
+    private static <T> List<T> merge(List<? extends List<T>> lists, Comparator<? super T> order, int limit) {
+        Iterator<T> merged = merge(lists.stream().map(List::iterator).toList(), order);
+        List<T> result = new ArrayList<>();
+
+        while (result.size() < limit && merged.hasNext()) {
+            result.add(merged.next());
+        }
+
+        return result;
+    }
+
+    /**
+     * K-way merge of iterators that are each sorted by {@code order}.
+     */
+    private static <T> Iterator<T> merge(List<? extends Iterator<T>> iterators, Comparator<? super T> order) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.value(), b.value()));
+
+        for (Iterator<T> iterator : iterators) {
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Head<T> head = heads.poll();
+
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+
+                if (head.rest().hasNext()) {
+                    heads.add(new Head<>(head.rest().next(), head.rest()));
+                }
+
+                return head.value();
+            }
+        };
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private record Head<T>(T value, Iterator<T> rest) {}
+}
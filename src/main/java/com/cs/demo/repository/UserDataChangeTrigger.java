@@ -0,0 +1,67 @@
+package com.cs.demo.repository;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends the id of every inserted, updated or deleted user to {@code user_data_changes}, in the transaction of the
+ * change. Installed on the primary of the {@code replicated} profile by {@code replicated/primary.sql}.
+ * <p>
+ * The embedded database runs the trigger on the thread of the statement, which can collect the positions its changes
+ * took with {@link #drainPositions()} once it knows whether they committed.
+ */
+public class UserDataChangeTrigger implements Trigger {
+
+    private static final ThreadLocal<List<Long>> POSITIONS = ThreadLocal.withInitial(ArrayList::new);
+
+    private int idColumn;
+
+    /**
+     * The positions taken by the changes of the current thread since the last call.
+     */
+    public static List<Long> drainPositions() {
+        List<Long> positions = POSITIONS.get();
+
+        if (positions.isEmpty()) {
+            return List.of();
+        }
+
+        POSITIONS.remove();
+
+        return positions;
+    }
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, schemaName, tableName, "ID")) {
+            if (!columns.next()) {
+                throw new SQLException("no ID column in " + tableName);
+            }
+
+            idColumn = columns.getInt("ORDINAL_POSITION") - 1;
+        }
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO user_data_changes (user_id) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            statement.setObject(1, (newRow != null ? newRow : oldRow)[idColumn]);
+            statement.executeUpdate();
+
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next()) {
+                    POSITIONS.get().add(keys.getLong(1));
+                }
+            }
+        }
+    }
+}
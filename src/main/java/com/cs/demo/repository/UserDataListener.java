@@ -0,0 +1,101 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.service.UserBirthDateIndex;
+import com.cs.demo.service.UserMailIndex;
+import com.cs.demo.service.UserSearchIndex;
+import com.cs.demo.service.UserStatistics;
+import com.cs.demo.service.UserTableVersion;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+
+public class UserDataListener {
+
+    @Autowired
+    private ObjectProvider<UserMailIndex> mailIndex;
+
+    @Autowired
+    private ObjectProvider<UserBirthDateIndex> birthDateIndex;
+
+    @Autowired
+    private ObjectProvider<UserStatistics> statistics;
+
+    @Autowired
+    private ObjectProvider<UserSearchIndex> searchIndex;
+
+    @Autowired
+    private ObjectProvider<UserTableVersion> tableVersion;
+
+    @PostPersist
+    public void onPersist(UserData data) {
+        Long id = data.getId();
+        LocalDate birthDate = data.getBirthDate();
+
+        mailIndex.getObject().add(data.getMail());
+        birthDateIndex.ifAvailable(index -> afterCommit(() -> index.add(id, birthDate)));
+        afterCommit(() -> {
+            statistics.getObject().add(birthDate);
+            tableVersion.getObject().increment();
+        });
+        putIntoSearchIndex(data);
+    }
+
+    @PostUpdate
+    public void onUpdate(UserData data) {
+        Long id = data.getId();
+        LocalDate previousBirthDate = data.getPersistedBirthDate();
+        LocalDate birthDate = data.getBirthDate();
+
+        mailIndex.getObject().add(data.getMail());
+        birthDateIndex.ifAvailable(index -> afterCommit(() -> index.put(id, birthDate)));
+        afterCommit(() -> {
+            statistics.getObject().move(previousBirthDate, birthDate);
+            tableVersion.getObject().increment();
+        });
+        putIntoSearchIndex(data);
+    }
+
+    @PostRemove
+    public void onRemove(UserData data) {
+        Long id = data.getId();
+        LocalDate birthDate = data.getPersistedBirthDate();
+
+        afterCommit(() -> {
+            birthDateIndex.ifAvailable(index -> index.remove(id));
+            statistics.getObject().remove(birthDate);
+            searchIndex.ifAvailable(index -> index.remove(id));
+            tableVersion.getObject().increment();
+        });
+    }
+
+    private void putIntoSearchIndex(UserData data) {
+        Long id = data.getId();
+        String firstName = data.getFirstName();
+        String lastName = data.getLastName();
+        String mail = data.getMail();
+
+        searchIndex.ifAvailable(index -> afterCommit(() -> index.put(id, firstName, lastName, mail)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,305 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.config.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The replicas of the {@code replicated} profile: which of them may serve a read, and the checks that tell.
+ * <p>
+ * Every change on the primary gets a position in its change log, and {@link #check()} periodically asks each replica
+ * up to which position it has applied the changes and how long the oldest change it misses has been waiting. A read
+ * goes to a healthy replica that lags no more than {@code spring.application.replication.maxLag}. A client bound with
+ * {@link #startClient} reads its own writes: its reads only go to replicas that have applied the position of its last
+ * write, which it passes back with its next requests. Reads that no replica can serve go to the primary.
+ * <p>
+ * Rows read from a replica may be older than rows this instance has written, so {@link #isLastReadFromReplica()}
+ * tells callers not to cache them, and {@link #readCommittedWrites()} keeps the reads of a client on replicas that
+ * have applied everything this instance committed so far.
+ */
+@Component
+@Profile("replicated")
+public class UserReplicas {
+
+    private static final ThreadLocal<Client> CLIENT = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> LAST_READ_FROM_REPLICA = ThreadLocal.withInitial(() -> false);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private UserReplicator replicator;
+
+    @Value("${spring.application.replication.replicas}")
+    private String[] replicaUrls;
+
+    @Value("${spring.application.replication.maxLag}")
+    private Duration maxLag;
+
+    @Value("${spring.application.replication.checkInterval}")
+    private Duration checkInterval;
+
+    private volatile List<ReplicaState> states;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicLong committedPosition = new AtomicLong();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readTemplate;
+
+    private TransactionTemplate writeTemplate;
+
+    @PostConstruct
+    void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        writeTemplate = new TransactionTemplate(transactionManager);
+        states = Collections.nCopies(replicaUrls.length, ReplicaState.UNKNOWN);
+
+        for (int i = 0; i < replicaUrls.length; i++) {
+            int replica = i;
+
+            Gauge.builder("user.replica.lag", this, replicas -> replicas.states.get(replica).lagSeconds())
+                    .description("Age of the oldest change a replica has not applied, NaN while it is unhealthy")
+                    .baseUnit("seconds")
+                    .tag("replica", String.valueOf(replica))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Runs {@code action} on a replica that can serve it, or on the primary. Outside a transaction it runs in a new
+     * read-only one, inside a read-only transaction the replica is only picked if the transaction has not used a
+     * connection yet, and inside any other transaction it runs on the primary.
+     */
+    public <T> T read(Supplier<T> action) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return readTemplate.execute(status -> readOn(choose(), action));
+        }
+
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return readOn(choose(), action);
+        }
+
+        return readOn(null, action);
+    }
+
+    /**
+     * Whether the last {@link #read} of the current thread may have been served by a replica.
+     */
+    public boolean isLastReadFromReplica() {
+        return LAST_READ_FROM_REPLICA.get();
+    }
+
+    /**
+     * Runs a write, in a new transaction if there is none, and notes how it completed once the transaction completes:
+     * the client and {@link #readCommittedWrites()} get the position of a committed write before any other
+     * synchronization runs, and {@link UserReplicator} the positions of a rolled back one, so the replicas need not
+     * wait for them.
+     */
+    public <T> T write(Supplier<T> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return writeTemplate.execute(status -> write(action));
+        }
+
+        boolean registered = TransactionSynchronizationManager.getSynchronizations().stream()
+                .anyMatch(WriteCompleted.class::isInstance);
+
+        if (!registered) {
+            TransactionSynchronizationManager.registerSynchronization(new WriteCompleted());
+        }
+
+        return action.get();
+    }
+
+    /**
+     * Keeps the following reads of the bound client on replicas that have applied every write this instance has
+     * committed so far. Called before a read that must not be older than the table version it is tagged with.
+     */
+    public void readCommittedWrites() {
+        Client client = CLIENT.get();
+
+        if (client != null) {
+            client.minimum = Math.max(client.minimum, committedPosition.get());
+        }
+    }
+
+    /**
+     * Binds a client to the current thread: its reads are only served by replicas that have applied {@code position},
+     * and {@code onWritten} gets the position of every write it commits, to be passed back with its next requests.
+     */
+    public void startClient(long position, LongConsumer onWritten) {
+        CLIENT.set(new Client(position, onWritten));
+    }
+
+    public void finishClient() {
+        CLIENT.remove();
+    }
+
+    /**
+     * How long a client has to pass the position of its last write back. After that a replica that has not applied
+     * it lags too much to be picked anyway.
+     */
+    public Duration getReadPositionTtl() {
+        return maxLag.plus(checkInterval);
+    }
+
+    @Scheduled(initialDelayString = "${spring.application.replication.checkInterval}",
+            fixedDelayString = "${spring.application.replication.checkInterval}")
+    public void check() {
+        List<ReplicaState> checked = new ArrayList<>(replicaUrls.length);
+
+        for (int replica = 0; replica < replicaUrls.length; replica++) {
+            checked.add(check(replica));
+        }
+
+        states = checked;
+    }
+
+    private ReplicaState check(int replica) {
+        try {
+            long position = ReplicaRoutingDataSource.on(replica,
+                    () -> jdbcTemplate.queryForObject("SELECT position FROM replication_status", Long.class));
+            Long lag = jdbcTemplate.queryForObject("SELECT DATEDIFF('MILLISECOND', MIN(changed_at), CURRENT_TIMESTAMP) " +
+                    "FROM user_data_changes WHERE seq > ?", Long.class, position);
+
+            return new ReplicaState(true, position, Duration.ofMillis(lag != null ? Math.max(lag, 0) : 0));
+        } catch (DataAccessException e) {
+            return ReplicaState.UNKNOWN;
+        }
+    }
+
+    private Integer choose() {
+        List<ReplicaState> current = states;
+
+        if (current.isEmpty()) {
+            return null;
+        }
+
+        Client client = CLIENT.get();
+        long required = client != null ? Math.max(client.position, client.minimum) : 0;
+        int first = Math.floorMod(nextReplica.getAndIncrement(), current.size());
+
+        for (int i = 0; i < current.size(); i++) {
+            int replica = (first + i) % current.size();
+
+            if (current.get(replica).canServe(required, maxLag)) {
+                return replica;
+            }
+        }
+
+        return null;
+    }
+
+    private <T> T readOn(Integer replica, Supplier<T> action) {
+        LAST_READ_FROM_REPLICA.set(replica != null);
+
+        return ReplicaRoutingDataSource.on(replica, action);
+    }
+
+    private void committed() {
+        List<Long> positions = UserDataChangeTrigger.drainPositions();
+
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        long position = Collections.max(positions);
+        committedPosition.accumulateAndGet(position, Math::max);
+
+        Client client = CLIENT.get();
+
+        if (client != null) {
+            client.position = Math.max(client.position, position);
+            client.onWritten.accept(client.position);
+        }
+    }
+
+    private void rolledBack() {
+        List<Long> positions = UserDataChangeTrigger.drainPositions();
+
+        if (!positions.isEmpty()) {
+            replicator.rolledBack(positions);
+        }
+    }
+
+    private record ReplicaState(boolean healthy, long position, Duration lag) {
+
+        static final ReplicaState UNKNOWN = new ReplicaState(false, 0, Duration.ZERO);
+
+        boolean canServe(long required, Duration maxLag) {
+            return healthy && position >= required && lag.compareTo(maxLag) <= 0;
+        }
+
+        double lagSeconds() {
+            return healthy ? lag.toMillis() / 1000.0 : Double.NaN;
+        }
+    }
+
+    private static final class Client {
+
+        private long position;
+
+        private long minimum;
+
+        private final LongConsumer onWritten;
+
+        Client(long position, LongConsumer onWritten) {
+            this.position = position;
+            this.onWritten = onWritten;
+        }
+    }
+
+    private final class WriteCompleted implements TransactionSynchronization {
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void afterCommit() {
+            committed();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                rolledBack();
+            }
+        }
+    }
+}
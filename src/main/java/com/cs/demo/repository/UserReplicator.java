@@ -0,0 +1,202 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.config.ReplicaRoutingDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stands in for the replication of a real database, which H2 does not have: every
+ * {@code spring.application.replication.interval} the users changed on the primary since the position of a replica are
+ * copied to it, and its position moves on.
+ * <p>
+ * The position of a change is taken when it is written but becomes visible when it commits, so a position missing
+ * from the change log may still show up. A replica moves past such a gap as soon as {@link UserReplicas} reports the
+ * change as rolled back, and otherwise only once the gap has been there for
+ * {@code spring.application.replication.gapTimeout}, for changes rolled back without the application knowing. The
+ * changes behind the gap are copied right away all the same, as the copy is always the latest state of the user.
+ */
+@Component
+@Profile("replicated")
+public class UserReplicator {
+
+    private static final int BATCH_SIZE = 10000;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${spring.application.replication.replicas}")
+    private String[] replicaUrls;
+
+    @Value("${spring.application.replication.gapTimeout}")
+    private Duration gapTimeout;
+
+    private final Map<Long, Long> gapsSince = new ConcurrentHashMap<>();
+
+    private final Set<Long> rolledBack = ConcurrentHashMap.newKeySet();
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate snapshotTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+
+        new ResourceDatabasePopulator(new ClassPathResource("replicated/primary.sql")).execute(dataSource);
+
+        for (int replica = 0; replica < replicaUrls.length; replica++) {
+            ReplicaRoutingDataSource.on(replica, () -> {
+                entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+                new ResourceDatabasePopulator(new ClassPathResource("replicated/replica.sql")).execute(dataSource);
+                return null;
+            });
+        }
+    }
+
+    @Scheduled(initialDelayString = "${spring.application.replication.interval}",
+            fixedDelayString = "${spring.application.replication.interval}")
+    public synchronized void replicate() {
+        long applied = Long.MAX_VALUE;
+
+        for (int replica = 0; replica < replicaUrls.length; replica++) {
+            try {
+                applied = Math.min(applied, replicate(replica));
+            } catch (DataAccessException e) {
+                // Retried next time, and UserReplicas stops reading from the replica as it falls behind meanwhile.
+                applied = Long.MIN_VALUE;
+            }
+        }
+
+        if (applied > 0 && applied != Long.MAX_VALUE) {
+            long position = applied;
+
+            jdbcTemplate.update("DELETE FROM user_data_changes WHERE seq <= :position", Map.of("position", position));
+            gapsSince.keySet().removeIf(seq -> seq <= position);
+            rolledBack.removeIf(seq -> seq <= position);
+        }
+    }
+
+    /**
+     * Notes positions whose changes were rolled back and will never show up in the change log.
+     */
+    public void rolledBack(Collection<Long> positions) {
+        rolledBack.addAll(positions);
+    }
+
+    private long replicate(int replica) {
+        long position = ReplicaRoutingDataSource.on(replica, () -> jdbcTemplate.queryForObject(
+                "SELECT position FROM replication_status", Map.of(), Long.class));
+        Changes changes = snapshotTemplate.execute(status -> readChanges(position));
+
+        if (changes.seqs().isEmpty()) {
+            return position;
+        }
+
+        long next = advance(position, changes.seqs());
+
+        ReplicaRoutingDataSource.on(replica, () -> transactionTemplate.execute(status -> {
+            // Updating the users one by one could briefly give a mail to two of them, when they swap mails.
+            jdbcTemplate.update("DELETE FROM user_data WHERE id IN (:ids)", Map.of("ids", changes.ids()));
+
+            if (!changes.users().isEmpty()) {
+                List<String> columns = List.copyOf(changes.users().get(0).keySet());
+
+                jdbcTemplate.batchUpdate(String.format("INSERT INTO user_data (%s) VALUES (%s)",
+                                String.join(", ", columns),
+                                columns.stream().map(column -> ":" + column).collect(Collectors.joining(", "))),
+                        changes.users().stream()
+                                .map(MapSqlParameterSource::new)
+                                .toArray(SqlParameterSource[]::new));
+            }
+
+            return jdbcTemplate.update("UPDATE replication_status SET position = :position", Map.of("position", next));
+        }));
+
+        return next;
+    }
+
+    /**
+     * The next changes after {@code position} and the current state of their users, from one snapshot of the primary.
+     */
+    private Changes readChanges(long position) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT seq, user_id FROM user_data_changes WHERE seq > :position ORDER BY seq LIMIT :limit",
+                Map.of("position", position, "limit", BATCH_SIZE));
+
+        if (rows.isEmpty()) {
+            return new Changes(List.of(), Set.of(), List.of());
+        }
+
+        List<Long> seqs = rows.stream().map(row -> ((Number) row.get("seq")).longValue()).toList();
+        Set<Long> ids = rows.stream()
+                .map(row -> ((Number) row.get("user_id")).longValue())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return new Changes(seqs, ids, jdbcTemplate.queryForList("SELECT * FROM user_data WHERE id IN (:ids)",
+                Map.of("ids", ids)));
+    }
+
+    private long advance(long position, List<Long> seqs) {
+        long next = position;
+
+        for (long seq : seqs) {
+            while (seq > next + 1 && isRolledBack(next + 1)) {
+                next++;
+            }
+
+            if (seq > next + 1) {
+                break;
+            }
+
+            next = seq;
+        }
+
+        return next;
+    }
+
+    private boolean isRolledBack(long seq) {
+        return rolledBack.contains(seq) || isGapTimedOut(seq);
+    }
+
+    private boolean isGapTimedOut(long seq) {
+        long since = gapsSince.computeIfAbsent(seq, key -> System.nanoTime());
+
+        return System.nanoTime() - since > gapTimeout.toNanos();
+    }
+
+    private record Changes(List<Long> seqs, Set<Long> ids, List<Map<String, Object>> users) {}
+}
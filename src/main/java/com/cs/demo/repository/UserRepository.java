@@ -1,21 +1,102 @@
 package com.cs.demo.repository;
 
 import com.cs.demo.model.UserData;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.stereotype.Repository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-@Repository
-public interface UserRepository extends JpaRepository<UserData, Long> {
+/**
+ * Only the CRUD methods the application uses are exposed, so that {@link ShardedUserRepository} can route every method
+ * explicitly.
+ */
+public interface UserRepository extends Repository<UserData, Long>, UserRepositoryCustom {
+
+    <S extends UserData> S save(S data);
+
+    <S extends UserData> List<S> saveAll(Iterable<S> data);
+
+    Optional<UserData> findById(Long id);
+
+    boolean existsById(Long id);
+
+    List<UserData> findAll();
+
+    List<UserData> findAllById(Iterable<Long> ids);
+
+    long count();
+
+    void deleteById(Long id);
+
+    void delete(UserData data);
+
+    void deleteAll();
+
+    void deleteAllInBatch();
 
     @Query("SELECT u FROM UserData u WHERE u.mail = ?1")
     Optional<UserData> findByMail(String mail);
 
-    @Query("SELECT u FROM UserData u WHERE ?1 <= u.birthDate AND u.birthDate < ?2")
+    @Query("SELECT u.mail FROM UserData u WHERE u.mail IN ?1")
+    List<String> findMailsIn(Collection<String> mails);
+
+    @Query("SELECT u FROM UserData u WHERE ?1 <= u.birthDate AND u.birthDate < ?2 ORDER BY u.birthDate, u.id")
     List<UserData> fillAllByRange(LocalDate from, LocalDate to);
 
+    @Query("SELECT u FROM UserData u WHERE LOWER(u.firstName) LIKE %?1% OR LOWER(u.lastName) LIKE %?1% " +
+            "OR LOWER(u.mail) LIKE %?1% ORDER BY u.id")
+    List<UserData> findAllByNameContaining(String query, Limit limit);
+
+    @Query("SELECT u FROM UserData u WHERE u.id > ?1 ORDER BY u.id")
+    List<UserData> findAllAfter(Long id, Limit limit);
+
+    @Query("SELECT u FROM UserData u WHERE ?1 <= u.birthDate AND u.birthDate < ?2 " +
+            "AND (u.birthDate > ?1 OR u.id > ?3) ORDER BY u.birthDate, u.id")
+    List<UserData> findAllByRangeAfter(LocalDate birthDate, LocalDate to, Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM UserData u ORDER BY u.id")
+    Stream<UserData> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.mail FROM UserData u")
+    Stream<String> streamAllMails();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id, u.firstName, u.lastName, u.mail FROM UserData u")
+    Stream<Object[]> streamAllNames();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.birthDate, u.id FROM UserData u ORDER BY u.birthDate, u.id")
+    Stream<Object[]> streamAllBirthDates();
+
+    @Query("SELECT u.id, u.firstName, u.lastName, u.mail FROM UserData u WHERE u.id > ?1 ORDER BY u.id")
+    List<Object[]> findNamesAfter(Long id, Limit limit);
+
+    @Query("SELECT u.birthDate, u.id FROM UserData u ORDER BY u.birthDate, u.id")
+    List<Object[]> findBirthDates(Limit limit);
+
+    @Query("SELECT u.birthDate, u.id FROM UserData u WHERE u.birthDate > ?1 OR (u.birthDate = ?1 AND u.id > ?2) " +
+            "ORDER BY u.birthDate, u.id")
+    List<Object[]> findBirthDatesAfter(LocalDate birthDate, Long id, Limit limit);
+
+    @Query("SELECT COUNT(u) FROM UserData u WHERE ?1 <= u.birthDate AND u.birthDate < ?2")
+    long countByRange(LocalDate from, LocalDate to);
+
+    @Query("SELECT u.version FROM UserData u WHERE u.id = ?1")
+    Optional<Long> findVersionById(Long id);
+
+    @Query("SELECT YEAR(u.birthDate), COUNT(u) FROM UserData u GROUP BY YEAR(u.birthDate)")
+    List<Object[]> countByBirthYear();
 }
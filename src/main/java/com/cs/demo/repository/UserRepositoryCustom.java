@@ -0,0 +1,28 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataField;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    int updateNonNullFields(Long id, UserData changes, Long expectedVersion);
+
+    int updateAllFields(Long id, UserData data, Long expectedVersion);
+
+    Optional<UserData> findForUpdateById(Long id);
+
+    List<UserData> persistAll(List<UserData> data);
+
+    void insertWithId(UserData data);
+
+    List<Map<String, Object>> findAllProjected(List<UserDataField> fields);
+
+    List<Map<String, Object>> findAllProjectedByRange(LocalDate from, LocalDate to, List<UserDataField> fields);
+
+    Optional<Map<String, Object>> findProjectedById(Long id, List<UserDataField> fields);
+}
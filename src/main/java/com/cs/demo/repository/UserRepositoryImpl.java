@@ -0,0 +1,177 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Updates issued as a single {@code UPDATE ... WHERE id = ? [AND version = ?]} without loading the entity first,
+ * either over the supplied columns only or over all of them. With an expected version the update is a compare-and-set
+ * that touches no row when the user was changed in the meantime. Entity listeners are not called and the persistence
+ * context is cleared afterwards, so callers have to keep derived state such as
+ * {@link com.cs.demo.service.UserMailIndex} up to date themselves.
+ * <p>
+ * {@link #findForUpdateById} reads the user with {@code SELECT ... FOR UPDATE}, so that an update later in the same
+ * transaction applies to exactly that state. The persistence context is flushed and cleared first, as a copy of the
+ * user read earlier in the request would otherwise be returned instead and fail the version check of the lock.
+ * <p>
+ * Projections select only the requested columns as tuples and never hydrate entities.
+ * <p>
+ * {@link #insertWithId} is an HQL {@code INSERT} that keeps the id of the user, which {@code persist} would replace
+ * with one from the sequence. It does not call entity listeners either.
+ */
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    @Override
+    public int updateNonNullFields(Long id, UserData changes, Long expectedVersion) {
+        return update(id, changes, expectedVersion, true);
+    }
+
+    @Override
+    public int updateAllFields(Long id, UserData data, Long expectedVersion) {
+        return update(id, data, expectedVersion, false);
+    }
+
+    @Override
+    public Optional<UserData> findForUpdateById(Long id) {
+        entityManager.flush();
+        entityManager.clear();
+
+        return Optional.ofNullable(entityManager.find(UserData.class, id, LockModeType.PESSIMISTIC_WRITE));
+    }
+
+    @Override
+    public List<UserData> persistAll(List<UserData> data) {
+        for (int i = 0; i < data.size(); i++) {
+            entityManager.persist(data.get(i));
+
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        return data;
+    }
+
+    @Override
+    public void insertWithId(UserData data) {
+        entityManager.createQuery("INSERT INTO UserData (id, mail, firstName, lastName, birthDate, address, tel, " +
+                        "version) VALUES (:id, :mail, :firstName, :lastName, :birthDate, :address, :tel, 0)")
+                .setParameter("id", data.getId())
+                .setParameter("mail", data.getMail())
+                .setParameter("firstName", data.getFirstName())
+                .setParameter("lastName", data.getLastName())
+                .setParameter("birthDate", data.getBirthDate())
+                .setParameter("address", data.getAddress())
+                .setParameter("tel", data.getTel())
+                .executeUpdate();
+        data.setVersion(0L);
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjected(List<UserDataField> fields) {
+        CriteriaQuery<Tuple> query = projection(fields);
+
+        return toMaps(entityManager.createQuery(query).getResultList(), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjectedByRange(LocalDate from, LocalDate to, List<UserDataField> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = projection(fields);
+        Root<?> root = query.getRoots().iterator().next();
+
+        query.where(builder.greaterThanOrEqualTo(root.get("birthDate"), from),
+                        builder.lessThan(root.get("birthDate"), to))
+                .orderBy(builder.asc(root.get("birthDate")), builder.asc(root.get("id")));
+
+        return toMaps(entityManager.createQuery(query).getResultList(), fields);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findProjectedById(Long id, List<UserDataField> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = projection(fields);
+        Root<?> root = query.getRoots().iterator().next();
+
+        query.where(builder.equal(root.get("id"), id));
+
+        return toMaps(entityManager.createQuery(query).getResultList(), fields).stream().findFirst();
+    }
+
+    private CriteriaQuery<Tuple> projection(List<UserDataField> fields) {
+        CriteriaQuery<Tuple> query = entityManager.getCriteriaBuilder().createTupleQuery();
+        Root<UserData> root = query.from(UserData.class);
+
+        return query.multiselect(fields.stream()
+                .<Selection<?>>map(field -> root.get(field.getAttribute()))
+                .toList());
+    }
+
+    private static List<Map<String, Object>> toMaps(List<Tuple> tuples, List<UserDataField> fields) {
+        return tuples.stream()
+                .map(tuple -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+
+                    for (int i = 0; i < fields.size(); i++) {
+                        values.put(fields.get(i).getAttribute(), tuple.get(i));
+                    }
+
+                    return values;
+                })
+                .toList();
+    }
+
+    private int update(Long id, UserData data, Long expectedVersion, boolean skipNulls) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<UserData> update = builder.createCriteriaUpdate(UserData.class);
+        Root<UserData> root = update.from(UserData.class);
+
+        set(update, builder, root, "mail", data.getMail(), String.class, skipNulls);
+        set(update, builder, root, "firstName", data.getFirstName(), String.class, skipNulls);
+        set(update, builder, root, "lastName", data.getLastName(), String.class, skipNulls);
+        set(update, builder, root, "birthDate", data.getBirthDate(), LocalDate.class, skipNulls);
+        set(update, builder, root, "address", data.getAddress(), String.class, skipNulls);
+        set(update, builder, root, "tel", data.getTel(), String.class, skipNulls);
+        update.set(root.<Long>get("version"), builder.sum(root.get("version"), 1L));
+        update.where(expectedVersion == null
+                ? builder.equal(root.get("id"), id)
+                : builder.and(builder.equal(root.get("id"), id), builder.equal(root.get("version"), expectedVersion)));
+
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+
+        return updated;
+    }
+
+    private static <T> void set(CriteriaUpdate<UserData> update, CriteriaBuilder builder, Root<UserData> root,
+                                String attribute, T value, Class<T> type, boolean skipNulls) {
+        if (value != null) {
+            update.set(root.<T>get(attribute), value);
+        } else if (!skipNulls) {
+            update.set(root.<T>get(attribute), builder.nullLiteral(type));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.model.UserData;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The global part of the {@code sharded} profile, kept in a database of its own: the sequence all user ids come from,
+ * and the shard of every mail.
+ * <p>
+ * A mail is claimed before the user is written to its shard and released once the write is known to have failed or
+ * the mail to be gone, so the primary key of the directory keeps mails unique across shards. A crash between the two
+ * steps leaves a claimed mail without a user, which blocks that mail until the entry is removed.
+ */
+@Component
+@Profile("sharded")
+public class UserShardDirectory {
+
+    @Autowired
+    @Qualifier("userShardDirectoryDataSource")
+    private DataSource dataSource;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        new ResourceDatabasePopulator(new ClassPathResource("sharded/directory.sql")).execute(dataSource);
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public long[] nextIds(int count) {
+        return jdbcTemplate.queryForList("SELECT NEXT VALUE FOR user_id_seq FROM SYSTEM_RANGE(1, :count)",
+                        Map.of("count", count), Long.class).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    /**
+     * Maps {@code mail} to {@code shard}, or throws {@link org.springframework.dao.DuplicateKeyException} when the mail
+     * is taken.
+     */
+    public void claim(String mail, int shard) {
+        jdbcTemplate.update("INSERT INTO user_mail_directory (mail, shard) VALUES (:mail, :shard)",
+                Map.of("mail", mail, "shard", shard));
+    }
+
+    /**
+     * Claims the mails of all users at once, or none of them.
+     */
+    public void claimAll(Map<Integer, List<UserData>> usersByShard) {
+        List<SqlParameterSource> parameters = new ArrayList<>();
+
+        usersByShard.forEach((shard, users) -> users.forEach(user -> parameters.add(new MapSqlParameterSource()
+                .addValue("mail", user.getMail())
+                .addValue("shard", shard))));
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "INSERT INTO user_mail_directory (mail, shard) VALUES (:mail, :shard)",
+                parameters.toArray(new SqlParameterSource[0])));
+    }
+
+    public void release(String mail) {
+        jdbcTemplate.update("DELETE FROM user_mail_directory WHERE mail = :mail", Map.of("mail", mail));
+    }
+
+    public void releaseAll(Collection<String> mails) {
+        jdbcTemplate.batchUpdate("DELETE FROM user_mail_directory WHERE mail = :mail", mails.stream()
+                .map(mail -> new MapSqlParameterSource("mail", mail))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM user_mail_directory", Map.of());
+    }
+
+    public Optional<Integer> findShard(String mail) {
+        return jdbcTemplate.queryForList("SELECT shard FROM user_mail_directory WHERE mail = :mail",
+                        Map.of("mail", mail), Integer.class).stream()
+                .findFirst();
+    }
+
+    public List<String> findMailsIn(Collection<String> mails) {
+        if (mails.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.queryForList("SELECT mail FROM user_mail_directory WHERE mail IN (:mails)",
+                Map.of("mails", mails), String.class);
+    }
+
+    public Stream<String> streamAllMails() {
+        return jdbcTemplate.queryForStream("SELECT mail FROM user_mail_directory", Map.of(),
+                (resultSet, rowNum) -> resultSet.getString(1));
+    }
+}
@@ -0,0 +1,228 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.config.ShardRoutingDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * The shards of the {@code sharded} profile: which shard a user lives on, and running work on one or all of them.
+ * <p>
+ * Every shard holds a full {@code user_data} table and a user lives on the shard picked by a hash of its id. A
+ * transaction only ever touches one shard; work on several shards runs in one transaction per shard, in parallel.
+ */
+@Component
+@Profile("sharded")
+public class UserShards {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.application.sharding.shards}")
+    private String[] shardUrls;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private TransactionTemplate readTemplate;
+
+    private TransactionTemplate writeTemplate;
+
+    @PostConstruct
+    void init() {
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readTemplate.setReadOnly(true);
+        writeTemplate = new TransactionTemplate(transactionManager);
+
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            ShardRoutingDataSource.on(shard, () -> {
+                entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+                return null;
+            });
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        executor.close();
+    }
+
+    public int getShardCount() {
+        return shardUrls.length;
+    }
+
+    /**
+     * Fibonacci hashing, so that the consecutive ids handed out by the sequence spread evenly over the shards.
+     */
+    public int shardOf(long id) {
+        return Math.floorMod((int) ((id * 0x9E3779B97F4A7C15L) >>> 32), getShardCount());
+    }
+
+    /**
+     * Runs {@code action} against {@code shard} in the current transaction, or in a new one if there is none, so the
+     * connection is not held past it. A transaction is bound to the shard it first touched, so using another shard in
+     * it throws {@link IllegalStateException}.
+     */
+    public <T> T on(int shard, Supplier<T> action) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return writeTemplate.execute(status -> on(shard, action));
+        }
+
+        ShardBinding binding = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(ShardBinding.class::isInstance)
+                .map(ShardBinding.class::cast)
+                .findFirst()
+                .orElse(null);
+
+        if (binding == null) {
+            TransactionSynchronizationManager.registerSynchronization(new ShardBinding(shard));
+        } else if (binding.shard() != shard) {
+            throw new IllegalStateException(
+                    String.format("a transaction on shard %d cannot use shard %d", binding.shard(), shard));
+        }
+
+        return ShardRoutingDataSource.on(shard, action);
+    }
+
+    /**
+     * Runs {@code action} in a new read-only transaction on {@code shard}, outside any current transaction.
+     */
+    public <T> T read(int shard, Supplier<T> action) {
+        return readTemplate.execute(status -> on(shard, action));
+    }
+
+    /**
+     * Runs {@code action} for every shard in parallel and returns the results in shard order.
+     */
+    public <T> List<T> scatter(IntFunction<T> action) {
+        return scatter(IntStream.range(0, getShardCount()).boxed().toList(), action);
+    }
+
+    public <T> List<T> scatter(Collection<Integer> shards, IntFunction<T> action) {
+        if (shards.size() == 1) {
+            List<T> result = new ArrayList<>(1);
+            result.add(action.apply(shards.iterator().next()));
+
+            return result;
+        }
+
+        List<Future<T>> futures = shards.stream()
+                .map(shard -> executor.submit(() -> action.apply(shard)))
+                .toList();
+        List<T> results = new ArrayList<>(futures.size());
+
+        for (Future<T> future : futures) {
+            results.add(join(future));
+        }
+
+        return results;
+    }
+
+    /**
+     * Runs {@code action} in one transaction per shard, in parallel. The transactions only commit once every shard
+     * has done its work without an exception, otherwise all of them roll back and the first exception is thrown.
+     * A failure of the commits themselves can still leave some shards committed.
+     */
+    public <T> void writeAll(Map<Integer, T> work, Consumer<T> action) {
+        CountDownLatch written = new CountDownLatch(work.size());
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        List<Future<Object>> futures = work.entrySet().stream()
+                .map(entry -> executor.submit(() -> on(entry.getKey(), () -> {
+                    try {
+                        action.accept(entry.getValue());
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        written.countDown();
+                    }
+
+                    await(written);
+
+                    if (failure.get() != null) {
+                        throw new ShardRolledBackException();
+                    }
+
+                    return null;
+                })))
+                .toList();
+
+        for (Future<Object> future : futures) {
+            try {
+                join(future);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the shards", e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the shards", e);
+        }
+    }
+
+    private record ShardBinding(int shard) implements TransactionSynchronization {}
+
+    private static final class ShardRolledBackException extends RuntimeException {
+
+        ShardRolledBackException() {
+            super("rolled back as another shard failed");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.ReactiveUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking counterpart of {@link UserService} for the reactive stack.
+ * <p>
+ * It reads straight from the database: the cache and the in-process indexes of {@link UserService} are kept up to
+ * date by the JPA listener and are not available here. Only {@link UserTableVersion} is shared, and it is
+ * incremented after every committed write.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    @Autowired
+    private ReactiveUserRepository repository;
+
+    @Autowired
+    private UserTableVersion tableVersion;
+
+    public Flux<UserData> findAll() {
+        return repository.findAll();
+    }
+
+    public Flux<UserData> findAllByRange(LocalDate from, LocalDate to) {
+        return repository.findAllByRange(from, to);
+    }
+
+    public Flux<UserData> findAllAfter(Long id, int limit) {
+        return repository.findAllAfter(id, limit);
+    }
+
+    public Flux<UserData> findAllByRangeAfter(LocalDate birthDate, LocalDate to, Long id, int limit) {
+        return repository.findAllByRangeAfter(birthDate, to, id, limit);
+    }
+
+    public Mono<UserData> findById(Long id) {
+        return repository.findById(id);
+    }
+
+    public Mono<UserData> findByMail(String mail) {
+        return repository.findByMail(mail);
+    }
+
+    public String getTableVersion() {
+        return tableVersion.get();
+    }
+
+    /**
+     * Inserts a new user, or overwrites every field of the user with the same id. A user that no longer exists is
+     * saved as a new one.
+     */
+    @Transactional
+    public Mono<UserData> save(UserData data) {
+        Mono<UserData> result = data.getId() == null
+                ? repository.insert(data)
+                : repository.updateAllFields(data.getId(), data, null)
+                        .flatMap(updated -> updated == 0 ? repository.insert(data) : repository.findById(data.getId()));
+
+        return afterCommit(tableVersion::increment).then(result);
+    }
+
+    /**
+     * Applies the non-null fields of {@code changes} with a single UPDATE. With an expected version the update only
+     * succeeds if the user still has that version, otherwise {@link OptimisticLockingFailureException} is signalled.
+     */
+    @Transactional
+    public Mono<UserData> update(Long id, UserData changes, Long expectedVersion) {
+        if (changes.getMail() == null && changes.getFirstName() == null && changes.getLastName() == null
+                && changes.getBirthDate() == null && changes.getAddress() == null && changes.getTel() == null) {
+            return repository.findById(id)
+                    .flatMap(data -> expectedVersion != null && !expectedVersion.equals(data.getVersion())
+                            ? Mono.error(new OptimisticLockingFailureException("user was modified"))
+                            : Mono.just(data));
+        }
+
+        return applyUpdate(id, repository.updateNonNullFields(id, changes, expectedVersion), expectedVersion);
+    }
+
+    /**
+     * Replaces every field of the user with a single UPDATE, under the same version check as {@link #update}.
+     */
+    @Transactional
+    public Mono<UserData> replace(Long id, UserData data, Long expectedVersion) {
+        return applyUpdate(id, repository.updateAllFields(id, data, expectedVersion), expectedVersion);
+    }
+
+    @Transactional
+    public Mono<Void> deleteById(Long id) {
+        return afterCommit(tableVersion::increment).then(repository.deleteById(id));
+    }
+
+    private Mono<UserData> applyUpdate(Long id, Mono<Integer> update, Long expectedVersion) {
+        return update.flatMap(updated -> {
+            if (updated > 0) {
+                return afterCommit(tableVersion::increment).then(repository.findById(id));
+            }
+
+            if (expectedVersion == null) {
+                return Mono.empty();
+            }
+
+            return repository.findVersionById(id)
+                    .flatMap(version -> Mono.error(new OptimisticLockingFailureException("user was modified")));
+        });
+    }
+
+    private static Mono<Void> afterCommit(Runnable action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(manager -> manager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(action);
+                    }
+                }))
+                .then();
+    }
+}
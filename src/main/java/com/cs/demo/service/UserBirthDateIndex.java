@@ -0,0 +1,294 @@
+package com.cs.demo.service;
+
+import com.cs.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process index of user ids ordered by birth date, kept in primitive arrays.
+ * <p>
+ * Entries live in two {@code (epoch day, id)} sorted arrays: the main one and a small pending one that takes new
+ * entries and is merged into the main one once it holds {@link #MERGE_THRESHOLD} of them. A range lookup is two
+ * binary searches per array. Removing an entry scans the ids, so updates and deletes cost O(n).
+ * <p>
+ * The index is kept up to date by {@link com.cs.demo.repository.UserDataListener} after every committed JPA write.
+ * Writes made while {@link #warmUp()} streams the table are replayed on top of what it read.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "spring.application.birthDateIndex.enabled", havingValue = "true")
+public class UserBirthDateIndex {
+
+    static final int MERGE_THRESHOLD = 4096;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] days = new long[0];
+
+    private long[] ids = new long[0];
+
+    private int size;
+
+    private long[] pendingDays = new long[MERGE_THRESHOLD];
+
+    private long[] pendingIds = new long[MERGE_THRESHOLD];
+
+    private int pendingSize;
+
+    private Set<Long> removedWhileLoading = new HashSet<>();
+
+    private volatile boolean ready;
+
+    @Autowired
+    private UserRepository repository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        long[] loadedDays = new long[MERGE_THRESHOLD];
+        long[] loadedIds = new long[MERGE_THRESHOLD];
+        int loaded = 0;
+
+        try (Stream<Object[]> rows = repository.streamAllBirthDates()) {
+            for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext(); loaded++) {
+                Object[] row = iterator.next();
+
+                if (loaded == loadedDays.length) {
+                    loadedDays = Arrays.copyOf(loadedDays, loaded * 2);
+                    loadedIds = Arrays.copyOf(loadedIds, loaded * 2);
+                }
+
+                loadedDays[loaded] = ((LocalDate) row[0]).toEpochDay();
+                loadedIds[loaded] = (Long) row[1];
+            }
+        }
+
+        load(loadedDays, loadedIds, loaded);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(long id, LocalDate birthDate) {
+        lock.writeLock().lock();
+
+        try {
+            addPending(birthDate.toEpochDay(), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(long id, LocalDate birthDate) {
+        lock.writeLock().lock();
+
+        try {
+            removeEntry(id);
+            addPending(birthDate.toEpochDay(), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the users born in {@code [from, to)}, ordered by birth date and id.
+     */
+    public long[] findIds(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+
+        lock.readLock().lock();
+
+        try {
+            int low = lowerBound(days, size, fromDay);
+            int high = lowerBound(days, size, toDay);
+            int pendingLow = lowerBound(pendingDays, pendingSize, fromDay);
+            int pendingHigh = lowerBound(pendingDays, pendingSize, toDay);
+            long[] result = new long[Math.max(high - low, 0) + Math.max(pendingHigh - pendingLow, 0)];
+
+            for (int i = 0; i < result.length; i++) {
+                boolean fromMain = pendingLow >= pendingHigh || low < high
+                        && compare(days[low], ids[low], pendingDays[pendingLow], pendingIds[pendingLow]) < 0;
+
+                result[i] = fromMain ? ids[low++] : pendingIds[pendingLow++];
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+
+        lock.readLock().lock();
+
+        try {
+            return Math.max(lowerBound(days, size, toDay) - lowerBound(days, size, fromDay), 0)
+                    + Math.max(lowerBound(pendingDays, pendingSize, toDay) - lowerBound(pendingDays, pendingSize, fromDay), 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Installs {@code count} entries sorted by epoch day and id as the content of the index, dropping the ones
+     * superseded by writes made since the index was created.
+     */
+    void load(long[] loadedDays, long[] loadedIds, int count) {
+        lock.writeLock().lock();
+
+        try {
+            Set<Long> written = new HashSet<>(removedWhileLoading);
+
+            for (int i = 0; i < size; i++) {
+                written.add(ids[i]);
+            }
+
+            for (int i = 0; i < pendingSize; i++) {
+                written.add(pendingIds[i]);
+            }
+
+            int kept = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (!written.contains(loadedIds[i])) {
+                    loadedDays[kept] = loadedDays[i];
+                    loadedIds[kept] = loadedIds[i];
+                    kept++;
+                }
+            }
+
+            long[] previousDays = Arrays.copyOf(days, size);
+            long[] previousIds = Arrays.copyOf(ids, size);
+
+            days = loadedDays;
+            ids = loadedIds;
+            size = kept;
+            merge(previousDays, previousIds, previousDays.length);
+            merge(Arrays.copyOf(pendingDays, pendingSize), Arrays.copyOf(pendingIds, pendingSize), pendingSize);
+            pendingSize = 0;
+            removedWhileLoading = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addPending(long day, long id) {
+        if (pendingSize == pendingDays.length) {
+            pendingDays = Arrays.copyOf(pendingDays, pendingSize * 2);
+            pendingIds = Arrays.copyOf(pendingIds, pendingSize * 2);
+        }
+
+        int position = pendingSize;
+
+        while (position > 0 && compare(pendingDays[position - 1], pendingIds[position - 1], day, id) > 0) {
+            position--;
+        }
+
+        System.arraycopy(pendingDays, position, pendingDays, position + 1, pendingSize - position);
+        System.arraycopy(pendingIds, position, pendingIds, position + 1, pendingSize - position);
+        pendingDays[position] = day;
+        pendingIds[position] = id;
+        pendingSize++;
+
+        if (ready && pendingSize >= MERGE_THRESHOLD) {
+            merge(pendingDays, pendingIds, pendingSize);
+            pendingSize = 0;
+        }
+    }
+
+    private void removeEntry(long id) {
+        if (!ready) {
+            removedWhileLoading.add(id);
+        }
+
+        for (int i = 0; i < pendingSize; i++) {
+            if (pendingIds[i] == id) {
+                System.arraycopy(pendingDays, i + 1, pendingDays, i, pendingSize - i - 1);
+                System.arraycopy(pendingIds, i + 1, pendingIds, i, pendingSize - i - 1);
+                pendingSize--;
+                return;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                System.arraycopy(days, i + 1, days, i, size - i - 1);
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                size--;
+                return;
+            }
+        }
+    }
+
+    private void merge(long[] otherDays, long[] otherIds, int otherSize) {
+        long[] mergedDays = new long[size + otherSize];
+        long[] mergedIds = new long[size + otherSize];
+        int i = 0;
+        int j = 0;
+
+        for (int k = 0; k < mergedDays.length; k++) {
+            if (j >= otherSize || i < size && compare(days[i], ids[i], otherDays[j], otherIds[j]) < 0) {
+                mergedDays[k] = days[i];
+                mergedIds[k] = ids[i++];
+            } else {
+                mergedDays[k] = otherDays[j];
+                mergedIds[k] = otherIds[j++];
+            }
+        }
+
+        days = mergedDays;
+        ids = mergedIds;
+        size = mergedDays.length;
+    }
+
+    private static int lowerBound(long[] days, int size, long day) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (days[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static int compare(long day1, long id1, long day2, long id2) {
+        return day1 != day2 ? Long.compare(day1, day2) : Long.compare(id1, id2);
+    }
+}
@@ -0,0 +1,110 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserData;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded read-through cache of users, keyed by id and by mail.
+ * <p>
+ * Mail entries only point to an id and are trusted while the cached user for that id still has the same mail,
+ * so an update or a delete only has to touch the id entry. An entry is never replaced by an older version of the same
+ * user, but a reader racing with a delete may put it back; such an entry lives at most
+ * {@code spring.application.cache.ttl}.
+ * <p>
+ * Users are copied on the way in and out, so callers never share a cached instance.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private final Cache<Long, UserData> usersById;
+
+    private final Cache<String, Long> idsByMail;
+
+    public UserCache(@Value("${spring.application.cache.maxSize}") long maxSize,
+                     @Value("${spring.application.cache.ttl}") Duration ttl) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsByMail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<UserData> getById(Long id) {
+        return Optional.ofNullable(usersById.getIfPresent(id)).map(UserCache::copy);
+    }
+
+    public Optional<UserData> getByMail(String mail) {
+        Long id = idsByMail.getIfPresent(mail);
+
+        if (id == null) {
+            return Optional.empty();
+        }
+
+        UserData data = usersById.getIfPresent(id);
+
+        if (data == null || !mail.equals(data.getMail())) {
+            idsByMail.asMap().remove(mail, id);
+            return Optional.empty();
+        }
+
+        return Optional.of(copy(data));
+    }
+
+    public void put(UserData data) {
+        UserData copy = copy(data);
+        UserData result = usersById.asMap().merge(copy.getId(), copy, (current, candidate) ->
+                version(candidate) >= version(current) ? candidate : current);
+
+        if (result == copy) {
+            idsByMail.put(copy.getMail(), copy.getId());
+        }
+    }
+
+    public void evict(Long id) {
+        usersById.invalidate(id);
+    }
+
+    public void clear() {
+        usersById.invalidateAll();
+        idsByMail.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, usersById, "users.byId");
+        CaffeineCacheMetrics.monitor(registry, idsByMail, "users.byMail");
+    }
+
+    private static UserData copy(UserData data) {
+        return UserData.Builder.basedAt(data)
+                .setVersion(data.getVersion())
+                .build();
+    }
+
+    private static long version(UserData data) {
+        return data.getVersion() != null ? data.getVersion() : -1;
+    }
+
+    public CacheStats getByIdStats() {
+        return usersById.stats();
+    }
+
+    public CacheStats getByMailStats() {
+        return idsByMail.stats();
+    }
+}
@@ -0,0 +1,61 @@
+package com.cs.demo.service;
+
+import com.cs.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process set of the normalized mails stored in the table.
+ * <p>
+ * A mail missing from the set is definitely free, so lookups for it can skip the database. The set is kept up to
+ * date by {@link com.cs.demo.repository.UserDataListener} on every JPA write. Mails replaced by an update or freed by
+ * a delete stay in the set and only cost an extra query: removing them after the commit could drop the mail of a user
+ * inserted with it meanwhile. The unique constraint on {@code mail} stays the final guard for writes that race with
+ * the set.
+ */
+@Component
+@Profile("!reactive")
+public class UserMailIndex {
+
+    private final Set<String> mails = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready;
+
+    @Autowired
+    private UserRepository repository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        try (Stream<String> values = repository.streamAllMails()) {
+            values.forEach(this::add);
+        }
+
+        ready = true;
+    }
+
+    public boolean mayContain(String mail) {
+        return !ready || mails.contains(normalize(mail));
+    }
+
+    public void add(String mail) {
+        mails.add(normalize(mail));
+    }
+
+    public void remove(String mail) {
+        mails.remove(normalize(mail));
+    }
+
+    private static String normalize(String mail) {
+        return mail.toLowerCase(Locale.ROOT);
+    }
+}
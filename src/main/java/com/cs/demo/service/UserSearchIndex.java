@@ -0,0 +1,412 @@
+package com.cs.demo.service;
+
+import com.cs.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process trigram index over the first name, last name and mail of every user.
+ * <p>
+ * Every word of a user is padded as {@code "  word "} and split into trigrams, each pointing to a posting list of
+ * document slots. The last word of a query is not padded at the end, so it also matches as a prefix. Users are ranked
+ * by the number of query trigrams they contain, and at least half of them have to match, which tolerates typos.
+ * <p>
+ * Slots are only ever appended, so posting lists stay sorted. Candidates are merged from the shortest lists only, as
+ * a match has to contain at least one of them, and the longer lists are probed with a galloping search. Removed
+ * slots are skipped and reclaimed by rebuilding the index once they outnumber the live ones. The index is kept up to
+ * date by {@link com.cs.demo.repository.UserDataListener} after every committed JPA write, and writes made while
+ * {@link #warmUp()} streams the table win over what it read.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "spring.application.searchIndex.enabled", havingValue = "true", matchIfMissing = true)
+public class UserSearchIndex {
+
+    static final int MAX_QUERY_LENGTH = 64;
+
+    private static final int MIN_REMOVED_SLOTS_TO_COMPACT = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Integer> slotsById = new HashMap<>();
+
+    private long[] ids = new long[1024];
+
+    private String[] texts = new String[1024];
+
+    private int slots;
+
+    private int removedSlots;
+
+    private Map<Long, IntList> postings = new HashMap<>();
+
+    private Set<Long> writtenWhileLoading = new HashSet<>();
+
+    private volatile boolean ready;
+
+    @Autowired
+    private UserRepository repository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        try (Stream<Object[]> rows = repository.streamAllNames()) {
+            for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext(); ) {
+                Object[] row = iterator.next();
+                long id = (Long) row[0];
+
+                lock.writeLock().lock();
+
+                try {
+                    if (!writtenWhileLoading.contains(id)) {
+                        removeEntry(id);
+                        addEntry(id, text((String) row[1], (String) row[2], (String) row[3]));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            writtenWhileLoading = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(long id, String firstName, String lastName, String mail) {
+        String text = text(firstName, lastName, mail);
+
+        lock.writeLock().lock();
+
+        try {
+            if (!ready) {
+                writtenWhileLoading.add(id);
+            }
+
+            removeEntry(id);
+            addEntry(id, text);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+
+        try {
+            if (!ready) {
+                writtenWhileLoading.add(id);
+            }
+
+            removeEntry(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best {@code limit} matches for {@code query}, best first.
+     */
+    public long[] search(String query, int limit) {
+        long[] grams = queryTrigrams(query);
+
+        if (grams.length == 0) {
+            return new long[0];
+        }
+
+        int threshold = (grams.length + 1) / 2;
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1);
+
+        lock.readLock().lock();
+
+        try {
+            IntList[] lists = new IntList[grams.length];
+            int count = 0;
+
+            for (long gram : grams) {
+                IntList list = postings.get(gram);
+
+                if (list != null) {
+                    lists[count++] = list;
+                }
+            }
+
+            if (count < threshold) {
+                return new long[0];
+            }
+
+            Arrays.sort(lists, 0, count, Comparator.comparingInt(list -> list.size));
+
+            // A match contains at least one of the candidateLists shortest trigrams, the longer ones are only probed.
+            int candidateLists = count - threshold + 1;
+            int[] positions = new int[count];
+
+            while (true) {
+                int slot = Integer.MAX_VALUE;
+
+                for (int i = 0; i < candidateLists; i++) {
+                    if (positions[i] < lists[i].size) {
+                        slot = Math.min(slot, lists[i].values[positions[i]]);
+                    }
+                }
+
+                if (slot == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                int score = 0;
+
+                for (int i = 0; i < candidateLists; i++) {
+                    if (positions[i] < lists[i].size && lists[i].values[positions[i]] == slot) {
+                        positions[i]++;
+                        score++;
+                    }
+                }
+
+                int possible = score + count - candidateLists;
+                int minimum = top.size() < limit ? threshold : Math.max(threshold, top.peek().score());
+
+                for (int i = candidateLists; i < count && possible >= minimum; i++) {
+                    positions[i] = lists[i].seek(positions[i], slot);
+
+                    if (positions[i] < lists[i].size && lists[i].values[positions[i]] == slot) {
+                        score++;
+                    } else {
+                        possible--;
+                    }
+                }
+
+                if (possible >= minimum && texts[slot] != null) {
+                    top.offer(new Match(ids[slot], score, texts[slot].length()));
+
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long[] result = new long[top.size()];
+
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().id();
+        }
+
+        return result;
+    }
+
+    private void addEntry(long id, String text) {
+        if (slots == ids.length) {
+            ids = Arrays.copyOf(ids, slots * 2);
+            texts = Arrays.copyOf(texts, slots * 2);
+        }
+
+        int slot = slots++;
+
+        ids[slot] = id;
+        texts[slot] = text;
+        slotsById.put(id, slot);
+
+        for (long gram : trigrams(text, true)) {
+            postings.computeIfAbsent(gram, key -> new IntList()).add(slot);
+        }
+    }
+
+    private void removeEntry(long id) {
+        Integer slot = slotsById.remove(id);
+
+        if (slot != null) {
+            texts[slot] = null;
+            removedSlots++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (removedSlots < MIN_REMOVED_SLOTS_TO_COMPACT || removedSlots < slots - removedSlots) {
+            return;
+        }
+
+        long[] liveIds = ids;
+        String[] liveTexts = texts;
+        int liveSlots = slots;
+
+        slotsById = new HashMap<>();
+        ids = new long[Math.max(liveSlots - removedSlots, 1024)];
+        texts = new String[ids.length];
+        slots = 0;
+        removedSlots = 0;
+        postings = new HashMap<>();
+
+        for (int i = 0; i < liveSlots; i++) {
+            if (liveTexts[i] != null) {
+                addEntry(liveIds[i], liveTexts[i]);
+            }
+        }
+    }
+
+    private static String text(String firstName, String lastName, String mail) {
+        return String.join(" ", firstName, lastName, mail).toLowerCase(Locale.ROOT);
+    }
+
+    private static long[] queryTrigrams(String query) {
+        String text = query.length() > MAX_QUERY_LENGTH ? query.substring(0, MAX_QUERY_LENGTH) : query;
+        text = text.toLowerCase(Locale.ROOT);
+
+        return trigrams(text, !text.isEmpty() && !Character.isLetterOrDigit(text.charAt(text.length() - 1)));
+    }
+
+    /**
+     * Returns the distinct trigrams of the words in {@code text}, sorted. Each word is padded with two spaces in
+     * front and, unless it is the last word and {@code padLastWord} is false, one space at the end.
+     */
+    private static long[] trigrams(String text, boolean padLastWord) {
+        long[] result = new long[text.length() * 3 + 3];
+        int count = 0;
+        int start = 0;
+
+        while (start < text.length()) {
+            while (start < text.length() && !Character.isLetterOrDigit(text.charAt(start))) {
+                start++;
+            }
+
+            int end = start;
+
+            while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+                end++;
+            }
+
+            if (start == end) {
+                break;
+            }
+
+            boolean padEnd = padLastWord || end < text.length();
+            char first = ' ';
+            char second = ' ';
+
+            for (int i = start; i <= end; i++) {
+                char third;
+
+                if (i < end) {
+                    third = text.charAt(i);
+                } else if (padEnd) {
+                    third = ' ';
+                } else {
+                    break;
+                }
+
+                result[count++] = (long) first << 32 | (long) second << 16 | third;
+                first = second;
+                second = third;
+            }
+
+            start = end;
+        }
+
+        Arrays.sort(result, 0, count);
+
+        int distinct = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || result[distinct - 1] != result[i]) {
+                result[distinct++] = result[i];
+            }
+        }
+
+        return Arrays.copyOf(result, distinct);
+    }
+
+    private record Match(long id, int score, int length) implements Comparable<Match> {
+
+        @Override
+        public int compareTo(Match other) {
+            if (score != other.score) {
+                return Integer.compare(score, other.score);
+            }
+
+            if (length != other.length) {
+                return Integer.compare(other.length, length);
+            }
+
+            return Long.compare(other.id, id);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size++] = value;
+        }
+
+        /**
+         * Returns the first position at or after {@code from} holding a value not less than {@code value}.
+         */
+        int seek(int from, int value) {
+            int step = 1;
+            int low = from;
+
+            while (low + step < size && values[low + step] < value) {
+                low += step;
+                step <<= 1;
+            }
+
+            if (low >= size || values[low] >= value) {
+                return low;
+            }
+
+            int high = Math.min(low + step, size);
+
+            low++;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+    }
+}
@@ -1,41 +1,438 @@
 package com.cs.demo.service;
 
 import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataField;
+import com.cs.demo.model.UserDataStats;
+import com.cs.demo.model.UserDataWriteStatus;
+import com.cs.demo.repository.UserReplicas;
 import com.cs.demo.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!reactive")
+@Timed("user.service")
 public class UserService {
 
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
     @Autowired
     private UserRepository repository;
 
+    @Autowired
+    private UserCache cache;
+
+    @Autowired
+    private UserMailIndex mailIndex;
+
+    @Autowired
+    private ObjectProvider<UserBirthDateIndex> birthDateIndex;
+
+    @Autowired
+    private UserStatistics statistics;
+
+    @Autowired
+    private ObjectProvider<UserSearchIndex> searchIndex;
+
+    @Autowired
+    private UserTableVersion tableVersion;
+
+    @Autowired
+    private ObjectProvider<UserWriteBehindQueue> writeBehindQueue;
+
+    @Autowired
+    private ObjectProvider<UserReplicas> replicas;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public List<UserData> findAll() {
         return repository.findAll();
     }
 
     public List<UserData> findAllByRange(LocalDate from, LocalDate to) {
-        return repository.fillAllByRange(from, to);
+        UserBirthDateIndex index = birthDateIndex.getIfAvailable();
+
+        if (index == null || !index.isReady()) {
+            return repository.fillAllByRange(from, to);
+        }
+
+        return findAllInOrder(index.findIds(from, to));
+    }
+
+    public long countByRange(LocalDate from, LocalDate to) {
+        UserBirthDateIndex index = birthDateIndex.getIfAvailable();
+
+        if (index == null || !index.isReady()) {
+            return repository.countByRange(from, to);
+        }
+
+        return index.count(from, to);
+    }
+
+    public List<UserData> findAllAfter(Long id, int limit) {
+        return repository.findAllAfter(id, Limit.of(limit));
+    }
+
+    public List<UserData> findAllByRangeAfter(LocalDate birthDate, LocalDate to, Long id, int limit) {
+        return repository.findAllByRangeAfter(birthDate, to, id, Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<UserData> consumer) {
+        try (Stream<UserData> users = repository.streamAll()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    public List<Map<String, Object>> findAllProjected(List<UserDataField> fields) {
+        return repository.findAllProjected(fields);
+    }
+
+    public List<Map<String, Object>> findAllProjectedByRange(LocalDate from, LocalDate to, List<UserDataField> fields) {
+        return repository.findAllProjectedByRange(from, to, fields);
+    }
+
+    public Optional<Map<String, Object>> findProjectedById(Long id, List<UserDataField> fields) {
+        Optional<UserData> cached = cache.getById(id);
+
+        if (cached.isPresent()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+
+            for (UserDataField field : fields) {
+                values.put(field.getAttribute(), field.getValue(cached.get()));
+            }
+
+            return Optional.of(values);
+        }
+
+        return repository.findProjectedById(id, fields);
     }
 
     public Optional<UserData> findById(Long id) {
-        return repository.findById(id);
+        Optional<UserData> cached = cache.getById(id);
+
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        Optional<UserData> data = repository.findById(id);
+        data.ifPresent(this::cacheRead);
+
+        return data;
+    }
+
+    public List<UserData> search(String query, int limit) {
+        UserSearchIndex index = searchIndex.getIfAvailable();
+
+        if (index == null || !index.isReady()) {
+            return repository.findAllByNameContaining(query.toLowerCase(Locale.ROOT), Limit.of(limit));
+        }
+
+        long[] ids = index.search(query, limit);
+        Map<Long, UserData> found = findAllById(Arrays.stream(ids).boxed().toList());
+        List<UserData> result = new ArrayList<>(ids.length);
+
+        for (long id : ids) {
+            UserData data = found.get(id);
+
+            if (data != null) {
+                result.add(data);
+            }
+        }
+
+        return result;
+    }
+
+    public UserDataStats getStats() {
+        return statistics.getStats();
+    }
+
+    public Map<Long, UserData> findAllById(Collection<Long> ids) {
+        Map<Long, UserData> result = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+
+        for (Long id : ids) {
+            cache.getById(id).ifPresentOrElse(data -> result.put(id, data), () -> misses.add(id));
+        }
+
+        for (int i = 0; i < misses.size(); i += LOOKUP_CHUNK_SIZE) {
+            for (UserData data : repository.findAllById(misses.subList(i, Math.min(i + LOOKUP_CHUNK_SIZE, misses.size())))) {
+                cacheRead(data);
+                result.put(data.getId(), data);
+            }
+        }
+
+        return result;
     }
 
     public Optional<UserData> findByMail(String mail) {
-        return repository.findByMail(mail);
+        if (!mailIndex.mayContain(mail)) {
+            return Optional.empty();
+        }
+
+        Optional<UserData> cached = cache.getByMail(mail);
+
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        Optional<UserData> data = repository.findByMail(mail);
+        data.ifPresent(this::cacheRead);
+
+        return data;
+    }
+
+    public Set<String> findExistingMails(Collection<String> mails) {
+        List<String> values = mails.stream()
+                .filter(mailIndex::mayContain)
+                .toList();
+        Set<String> result = new HashSet<>();
+
+        for (int i = 0; i < values.size(); i += LOOKUP_CHUNK_SIZE) {
+            result.addAll(repository.findMailsIn(values.subList(i, Math.min(i + LOOKUP_CHUNK_SIZE, values.size()))));
+        }
+
+        return result;
+    }
+
+    /**
+     * The version of the whole table. With replicas, the reads that follow are kept on replicas that have applied
+     * every write counted in it.
+     */
+    public String getTableVersion() {
+        String version = tableVersion.get();
+        replicas.ifAvailable(UserReplicas::readCommittedWrites);
+
+        return version;
     }
 
     public UserData save(UserData data) {
-        return repository.save(data);
+        if (data.getId() != null && data.getVersion() == null) {
+            // A full update overwrites the current row. A user that no longer exists is saved as a new one.
+            repository.findVersionById(data.getId()).ifPresentOrElse(data::setVersion, () -> data.setId(null));
+        }
+
+        UserData result = repository.save(data);
+        cache.put(result);
+
+        return result;
+    }
+
+    @Transactional
+    public Optional<UserData> update(Long id, UserData changes) {
+        return update(id, changes, null);
+    }
+
+    /**
+     * Applies the non-null fields of {@code changes} with a single UPDATE. With an expected version the update only
+     * succeeds if the user still has that version, otherwise {@link OptimisticLockingFailureException} is thrown.
+     */
+    @Transactional
+    public Optional<UserData> update(Long id, UserData changes, Long expectedVersion) {
+        if (changes.getMail() == null && changes.getFirstName() == null && changes.getLastName() == null
+                && changes.getBirthDate() == null && changes.getAddress() == null && changes.getTel() == null) {
+            Optional<UserData> data = findById(id);
+
+            if (expectedVersion != null && data.isPresent() && !expectedVersion.equals(data.get().getVersion())) {
+                throw new OptimisticLockingFailureException("user was modified");
+            }
+
+            return data;
+        }
+
+        return applyUpdate(id, changes, expectedVersion, false);
+    }
+
+    /**
+     * Replaces every field of the user with a single UPDATE, under the same version check as {@link #update}. Without
+     * an expected version the current row is overwritten whatever its version.
+     */
+    @Transactional
+    public Optional<UserData> replace(Long id, UserData data, Long expectedVersion) {
+        return applyUpdate(id, data, expectedVersion, true);
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindQueue.getIfAvailable() != null;
+    }
+
+    /**
+     * Queues a validated new user for the write-behind writer and returns its ticket, or an empty optional when the
+     * queue is full.
+     */
+    public Optional<String> saveLater(UserData data) {
+        return writeBehindQueue.getObject().offer(data);
+    }
+
+    public Optional<UserDataWriteStatus> getWriteStatus(String ticket) {
+        return writeBehindQueue.getObject().getStatus(ticket);
+    }
+
+    @Transactional
+    public List<UserData> insertAll(List<UserData> data) {
+        return repository.persistAll(data);
     }
 
     public void deleteById(Long id) {
         repository.deleteById(id);
+        cache.evict(id);
+    }
+
+    private Optional<UserData> applyUpdate(Long id, UserData changes, Long expectedVersion, boolean replace) {
+        // Only a compare-and-set makes sure a cached user is the row the update applies to. Without one a concurrent
+        // update may have changed other fields since it was cached, so the row is read and locked instead, as it is
+        // when the counters need the previous birth date of a user that is not cached.
+        Optional<UserData> previous = expectedVersion == null
+                ? Optional.empty()
+                : cache.getById(id).filter(user -> expectedVersion.equals(user.getVersion()));
+
+        if (previous.isEmpty() && (expectedVersion == null || changes.getBirthDate() != null)) {
+            previous = repository.findForUpdateById(id)
+                    .filter(user -> expectedVersion == null || expectedVersion.equals(user.getVersion()));
+        }
+
+        LocalDate previousBirthDate = previous.map(UserData::getBirthDate).orElse(null);
+        int updated = replace
+                ? repository.updateAllFields(id, changes, expectedVersion)
+                : repository.updateNonNullFields(id, changes, expectedVersion);
+
+        if (updated == 0) {
+            cache.evict(id);
+
+            if (expectedVersion != null && repository.existsById(id)) {
+                throw new OptimisticLockingFailureException("user was modified");
+            }
+
+            return Optional.empty();
+        }
+
+        if (changes.getMail() != null) {
+            mailIndex.add(changes.getMail());
+        }
+
+        Optional<UserData> data;
+
+        if (replace && (expectedVersion != null || previous.isPresent())) {
+            long version = expectedVersion != null ? expectedVersion : previous.get().getVersion();
+
+            data = Optional.of(UserData.Builder.basedAt(changes)
+                    .setId(id)
+                    .setVersion(version + 1)
+                    .build());
+        } else if (previous.isPresent() && !replace) {
+            data = Optional.of(applyChanges(previous.get(), changes));
+        } else {
+            data = repository.findById(id);
+        }
+
+        // The cache, indexes and counters are only told once the update is there to stay, as a rollback would not
+        // undo them.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                tableVersion.increment();
+
+                if (changes.getBirthDate() != null) {
+                    birthDateIndex.ifAvailable(index -> index.put(id, changes.getBirthDate()));
+
+                    if (previousBirthDate != null) {
+                        statistics.move(previousBirthDate, changes.getBirthDate());
+                    }
+                }
+
+                data.ifPresent(user -> {
+                    cache.put(user);
+                    searchIndex.ifAvailable(index ->
+                            index.put(id, user.getFirstName(), user.getLastName(), user.getMail()));
+                });
+            }
+        });
+
+        return data;
+    }
+
+    /**
+     * Caches a user just read, unless a replica served it: a replica may lag behind a version the cache has evicted.
+     */
+    private void cacheRead(UserData data) {
+        UserReplicas current = replicas.getIfAvailable();
+
+        if (current == null || !current.isLastReadFromReplica()) {
+            cache.put(data);
+        }
+    }
+
+    private List<UserData> findAllInOrder(long[] ids) {
+        List<UserData> result = new ArrayList<>(ids.length);
+        List<Long> chunk = new ArrayList<>(LOOKUP_CHUNK_SIZE);
+        Map<Long, UserData> found = new HashMap<>();
+
+        for (int i = 0; i < ids.length; i += LOOKUP_CHUNK_SIZE) {
+            int end = Math.min(i + LOOKUP_CHUNK_SIZE, ids.length);
+
+            chunk.clear();
+            found.clear();
+
+            for (int j = i; j < end; j++) {
+                chunk.add(ids[j]);
+            }
+
+            for (UserData data : repository.findAllById(chunk)) {
+                found.put(data.getId(), data);
+            }
+
+            for (int j = i; j < end; j++) {
+                UserData data = found.get(ids[j]);
+
+                if (data != null) {
+                    result.add(data);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static UserData applyChanges(UserData data, UserData changes) {
+        return UserData.Builder.basedAt(data)
+                .setId(data.getId())
+                .setMail(changes.getMail() != null ? changes.getMail() : data.getMail())
+                .setFirstName(changes.getFirstName() != null ? changes.getFirstName() : data.getFirstName())
+                .setLastName(changes.getLastName() != null ? changes.getLastName() : data.getLastName())
+                .setBirthDate(changes.getBirthDate() != null ? changes.getBirthDate() : data.getBirthDate())
+                .setAddress(changes.getAddress() != null ? changes.getAddress() : data.getAddress())
+                .setTel(changes.getTel() != null ? changes.getTel() : data.getTel())
+                .setVersion(data.getVersion() != null ? data.getVersion() + 1 : null)
+                .build();
     }
 }
@@ -0,0 +1,100 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserDataStats;
+import com.cs.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of users per birth year, kept up to date by {@link com.cs.demo.repository.UserDataListener} after every
+ * committed JPA write and by {@link UserService#update} for partial updates.
+ * <p>
+ * Writes racing with {@link #reconcile()} can be lost, so the counters are periodically replaced with the result of
+ * a {@code GROUP BY} query.
+ */
+@Component
+@Profile("!reactive")
+public class UserStatistics {
+
+    private static final int AGE_BUCKET_SIZE = 10;
+
+    private volatile Map<Integer, LongAdder> countsByYear = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UserRepository repository;
+
+    @Value("${spring.application.minAge}")
+    private int minAge;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${spring.application.stats.reconcileInterval}",
+            fixedDelayString = "${spring.application.stats.reconcileInterval}")
+    public void reconcile() {
+        Map<Integer, LongAdder> counts = new ConcurrentHashMap<>();
+
+        for (Object[] row : repository.countByBirthYear()) {
+            LongAdder count = new LongAdder();
+            count.add(((Number) row[1]).longValue());
+            counts.put(((Number) row[0]).intValue(), count);
+        }
+
+        countsByYear = counts;
+    }
+
+    public void add(LocalDate birthDate) {
+        countsByYear.computeIfAbsent(birthDate.getYear(), year -> new LongAdder()).increment();
+    }
+
+    public void remove(LocalDate birthDate) {
+        countsByYear.computeIfAbsent(birthDate.getYear(), year -> new LongAdder()).decrement();
+    }
+
+    public void move(LocalDate from, LocalDate to) {
+        if (from.getYear() != to.getYear()) {
+            remove(from);
+            add(to);
+        }
+    }
+
+    public UserDataStats getStats() {
+        int currentYear = LocalDate.now().getYear();
+        long total = 0;
+        Map<Integer, Long> byBirthYear = new TreeMap<>();
+        Map<Integer, Long> byAgeBucket = new TreeMap<>();
+
+        for (Map.Entry<Integer, LongAdder> entry : countsByYear.entrySet()) {
+            long count = entry.getValue().sum();
+
+            if (count <= 0) {
+                continue;
+            }
+
+            int age = currentYear - entry.getKey();
+            int bucket = age < minAge ? Integer.MIN_VALUE : minAge + (age - minAge) / AGE_BUCKET_SIZE * AGE_BUCKET_SIZE;
+
+            total += count;
+            byBirthYear.put(entry.getKey(), count);
+            byAgeBucket.merge(bucket, count, Long::sum);
+        }
+
+        Map<String, Long> byAge = new LinkedHashMap<>();
+
+        byAgeBucket.forEach((bucket, count) -> byAge.put(bucket == Integer.MIN_VALUE
+                ? String.format("<%d", minAge)
+                : String.format("%d-%d", bucket, bucket + AGE_BUCKET_SIZE - 1), count));
+
+        return new UserDataStats(total, byBirthYear, byAge);
+    }
+}
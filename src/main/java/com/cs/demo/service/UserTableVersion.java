@@ -0,0 +1,27 @@
+package com.cs.demo.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter of the committed writes to the user table since this process started.
+ * <p>
+ * Together with the start time it identifies the state of the whole table, which makes it a cheap validator for
+ * list responses. It only sees writes made through this process.
+ */
+@Component
+public class UserTableVersion {
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    public void increment() {
+        changes.incrementAndGet();
+    }
+
+    public String get() {
+        return String.format("%d-%d", epoch, changes.get());
+    }
+}
@@ -0,0 +1,194 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataWriteStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded queue of validated new users, inserted by a single writer thread in batches of up to
+ * {@code spring.application.writeBehind.batchSize} users or whatever arrived within
+ * {@code spring.application.writeBehind.maxDelay} of the first one, each batch in one transaction.
+ * <p>
+ * Durability: a queued user only lives in memory until its batch commits. A crash loses every queued and uncommitted
+ * user, so callers must treat the ticket as "accepted", not "stored", and poll its status. A graceful shutdown stops
+ * accepting users and writes the rest of the queue before the data source is closed. A batch that fails, for instance
+ * on a mail taken after validation, is retried user by user so only the offending users are rejected.
+ * <p>
+ * The status of a ticket is kept for {@code spring.application.writeBehind.statusTtl} after its last change, and at most
+ * {@code spring.application.writeBehind.statusMaxSize} statuses are kept at all, so a burst of writes cannot grow them
+ * without bound. A ticket whose status expired or was evicted is unknown, and polling it gets a 404. The limit may
+ * not be below the queue capacity, and should cover as many tickets as a burst hands out within the TTL.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "spring.application.writeBehind.enabled", havingValue = "true")
+public class UserWriteBehindQueue {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final BlockingQueue<PendingUser> queue;
+
+    private final Cache<String, UserDataWriteStatus> statuses;
+
+    private final int batchSize;
+
+    private final Duration maxDelay;
+
+    private final Thread writer = new Thread(this::run, "user-write-behind");
+
+    private volatile boolean running = true;
+
+    @Autowired
+    private UserService service;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public UserWriteBehindQueue(@Value("${spring.application.writeBehind.capacity}") int capacity,
+                                @Value("${spring.application.writeBehind.batchSize}") int batchSize,
+                                @Value("${spring.application.writeBehind.maxDelay}") Duration maxDelay,
+                                @Value("${spring.application.writeBehind.statusTtl}") Duration statusTtl,
+                                @Value("${spring.application.writeBehind.statusMaxSize}") long statusMaxSize) {
+        if (statusMaxSize < capacity) {
+            throw new IllegalArgumentException("statusMaxSize must be at least the capacity");
+        }
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .maximumSize(statusMaxSize)
+                .build();
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("user.writeBehind.queue", queue, BlockingQueue::size)
+                .description("Users accepted but not yet written")
+                .register(meterRegistry);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join();
+    }
+
+    /**
+     * Returns the ticket of the queued user, or an empty optional when the queue is full.
+     */
+    public Optional<String> offer(UserData data) {
+        String ticket = UUID.randomUUID().toString();
+
+        statuses.put(ticket, UserDataWriteStatus.pending(ticket));
+
+        if (!running || !queue.offer(new PendingUser(ticket, data))) {
+            statuses.invalidate(ticket);
+            return Optional.empty();
+        }
+
+        return Optional.of(ticket);
+    }
+
+    public Optional<UserDataWriteStatus> getStatus(String ticket) {
+        return Optional.ofNullable(statuses.getIfPresent(ticket));
+    }
+
+    private void run() {
+        List<PendingUser> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingUser first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                fill(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fill(List<PendingUser> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelay.toNanos();
+
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            PendingUser next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+
+            if (next == null) {
+                return;
+            }
+
+            batch.add(next);
+        }
+    }
+
+    private void write(List<PendingUser> batch) {
+        try {
+            service.insertAll(batch.stream().map(PendingUser::data).toList());
+
+            for (PendingUser user : batch) {
+                statuses.put(user.ticket(), UserDataWriteStatus.inserted(user.ticket(), user.data().getId()));
+            }
+        } catch (RuntimeException e) {
+            for (PendingUser user : batch) {
+                write(user);
+            }
+        }
+    }
+
+    private void write(PendingUser user) {
+        UserData data = user.data();
+
+        data.setId(null);
+        data.setVersion(null);
+
+        try {
+            UserData result = service.save(data);
+            statuses.put(user.ticket(), UserDataWriteStatus.inserted(user.ticket(), result.getId()));
+        } catch (DataIntegrityViolationException e) {
+            statuses.put(user.ticket(), UserDataWriteStatus.rejected(user.ticket(), "user with this email already exists"));
+        } catch (RuntimeException e) {
+            statuses.put(user.ticket(), UserDataWriteStatus.rejected(user.ticket(), "user could not be stored"));
+        }
+    }
+
+    private record PendingUser(String ticket, UserData data) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.cs.demo.validator;
+
+/**
+ * Single-pass, allocation-free equivalent of the pattern
+ * <pre>^L(?:\.L)*@(?:D\.)+D$</pre>
+ * with {@code L = [a-z0-9!#$%&'*+/=?^_`{|}~-]+} and {@code D = [a-z0-9](?:[a-z0-9-]*[a-z0-9])?}, evaluated with
+ * {@code Matcher.find()}. As with {@code $}, one trailing line terminator is accepted.
+ */
+public final class MailValidator {
+
+    private static final boolean[] LOCAL_PART_SYMBOLS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            LOCAL_PART_SYMBOLS[c] = true;
+        }
+
+        for (char c = '0'; c <= '9'; c++) {
+            LOCAL_PART_SYMBOLS[c] = true;
+        }
+
+        for (char c : "!#$%&'*+/=?^_`{|}~-".toCharArray()) {
+            LOCAL_PART_SYMBOLS[c] = true;
+        }
+    }
+
+    private MailValidator() {}
+
+    public static boolean isValid(CharSequence mail) {
+        int end = contentEnd(mail);
+        int i = 0;
+        boolean atomStart = true;
+
+        for (; i < end; i++) {
+            char c = mail.charAt(i);
+
+            if (c == '@') {
+                break;
+            }
+
+            if (c == '.') {
+                if (atomStart) {
+                    return false;
+                }
+
+                atomStart = true;
+            } else if (c < 128 && LOCAL_PART_SYMBOLS[c]) {
+                atomStart = false;
+            } else {
+                return false;
+            }
+        }
+
+        if (i == end || atomStart) {
+            return false;
+        }
+
+        int dots = 0;
+        boolean labelStart = true;
+        char previous = '@';
+
+        for (i++; i < end; i++) {
+            char c = mail.charAt(i);
+
+            if (c == '.') {
+                if (labelStart || previous == '-') {
+                    return false;
+                }
+
+                dots++;
+                labelStart = true;
+            } else if (c == '-') {
+                if (labelStart) {
+                    return false;
+                }
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                labelStart = false;
+            } else {
+                return false;
+            }
+
+            previous = c;
+        }
+
+        return dots > 0 && !labelStart && previous != '-';
+    }
+
+    private static int contentEnd(CharSequence mail) {
+        int length = mail.length();
+
+        if (length >= 2 && mail.charAt(length - 2) == '\r' && mail.charAt(length - 1) == '\n') {
+            return length - 2;
+        }
+
+        if (length >= 1) {
+            char c = mail.charAt(length - 1);
+
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return length - 1;
+            }
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,69 @@
+package com.cs.demo.validator;
+
+import com.cs.demo.exception.UserControllerBadRequestException;
+import com.cs.demo.model.UserData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Field rules of a user shared by the servlet and the reactive controllers. Checks that need the storage, such as a
+ * taken mail, stay with the callers.
+ */
+@Component
+public class UserDataValidator {
+
+    private final int minAge;
+
+    public UserDataValidator(@Value("${spring.application.minAge}") int minAge) {
+        this.minAge = minAge;
+    }
+
+    public void validateMailFormat(UserData userData) {
+        String mail = userData.getMail();
+
+        if (mail == null) {
+            throw new UserControllerBadRequestException("unknown email value");
+        }
+
+        if (!MailValidator.isValid(mail)) {
+            throw new UserControllerBadRequestException("invalid email regex");
+        }
+    }
+
+    public void validateFirstName(UserData userData) {
+        String firstName = userData.getFirstName();
+
+        if (firstName == null) {
+            throw new UserControllerBadRequestException("unknown first name value");
+        }
+    }
+
+    public void validateLastName(UserData userData) {
+        String lastName = userData.getLastName();
+
+        if (lastName == null) {
+            throw new UserControllerBadRequestException("unknown last name value");
+        }
+    }
+
+    public void validateAge(UserData userData) {
+        LocalDate birthDate = userData.getBirthDate();
+
+        if (birthDate == null) {
+            throw new UserControllerBadRequestException("unknown birth date value");
+        }
+
+        LocalDate date = LocalDate.now();
+        int age = date.minusYears(birthDate.getYear()).getYear();
+
+        if (age < 0) {
+            throw new UserControllerBadRequestException("enter a valid birth date");
+        }
+
+        if (age < minAge) {
+            throw new UserControllerBadRequestException("user`s age must be more than 18");
+        }
+    }
+}
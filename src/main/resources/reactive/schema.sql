@@ -0,0 +1,16 @@
+-- Same schema as the one Hibernate generates for UserData, so both stacks can run against the same database.
+CREATE SEQUENCE IF NOT EXISTS user_data_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS user_data (
+    birth_date DATE NOT NULL,
+    id BIGINT NOT NULL,
+    version BIGINT,
+    address VARCHAR(255),
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    mail VARCHAR(255) NOT NULL UNIQUE,
+    tel VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS user_data_birth_date_idx ON user_data (birth_date, id);
@@ -0,0 +1,10 @@
+-- Stands in for the replication log of the primary: every change of a user appends its id, and the position of a
+-- change is its seq. Rolled back changes leave gaps in seq.
+CREATE TABLE IF NOT EXISTS user_data_changes (
+    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    changed_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE TRIGGER IF NOT EXISTS user_data_changed AFTER INSERT, UPDATE, DELETE ON user_data FOR EACH ROW
+    CALL 'com.cs.demo.repository.UserDataChangeTrigger';
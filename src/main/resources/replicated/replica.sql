@@ -0,0 +1,6 @@
+-- The position in the change log of the primary up to which this replica has applied the changes.
+CREATE TABLE IF NOT EXISTS replication_status (
+    position BIGINT NOT NULL
+);
+
+INSERT INTO replication_status (position) SELECT 0 WHERE NOT EXISTS (SELECT * FROM replication_status);
@@ -0,0 +1,8 @@
+-- Ids of all shards come from one sequence, and every mail maps to the shard of its user, which keeps mails unique
+-- across shards.
+CREATE SEQUENCE IF NOT EXISTS user_id_seq;
+
+CREATE TABLE IF NOT EXISTS user_mail_directory (
+    mail VARCHAR(255) NOT NULL PRIMARY KEY,
+    shard INTEGER NOT NULL
+);
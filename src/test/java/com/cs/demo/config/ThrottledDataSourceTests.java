@@ -0,0 +1,58 @@
+package com.cs.demo.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class ThrottledDataSourceTests {
+
+    private ThrottledDataSource dataSource;
+
+    @BeforeEach
+    void setup() {
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:throttled");
+
+        dataSource = new ThrottledDataSource(target, 1, Duration.ofMillis(100));
+    }
+
+    @Test
+    void testGetConnectionShouldReleasePermitOnClose() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            Assertions.assertTrue(connection.isValid(1));
+            Assertions.assertEquals(0, dataSource.getAvailablePermits());
+        }
+
+        Assertions.assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    void testGetConnectionShouldReleasePermitOnlyOnce() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        Assertions.assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    void testGetConnectionShouldFailWhenNoPermitIsAvailable() throws Exception {
+        try (Connection ignored = dataSource.getConnection();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Connection> connection = executor.submit(() -> dataSource.getConnection());
+
+            Exception e = Assertions.assertThrows(Exception.class, connection::get);
+            Assertions.assertInstanceOf(SQLTransientConnectionException.class, e.getCause());
+        }
+    }
+}
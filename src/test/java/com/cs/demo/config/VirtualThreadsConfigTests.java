@@ -0,0 +1,28 @@
+package com.cs.demo.config;
+
+import com.cs.demo.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:virtualThreads"
+})
+class VirtualThreadsConfigTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void testDataSourceShouldBeThrottled() {
+        Assertions.assertInstanceOf(ThrottledDataSource.class, dataSource);
+        Assertions.assertTrue(userService.findById(0L).isEmpty());
+    }
+}
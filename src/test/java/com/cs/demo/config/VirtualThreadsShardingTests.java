@@ -0,0 +1,65 @@
+package com.cs.demo.config;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserRepository;
+import com.cs.demo.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.application.connectionPermits=1",
+        "spring.application.connectionPermitTimeout=1s"
+})
+@ActiveProfiles("sharded")
+class VirtualThreadsShardingTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testRoutingDataSourceShouldNotBeThrottled() {
+        Assertions.assertFalse(dataSource instanceof ThrottledDataSource);
+    }
+
+    @Test
+    void testReadsOfEveryShardShouldNotShareAPermit() {
+        userService.insertAll(IntStream.range(0, 10).mapToObj(VirtualThreadsShardingTests::user).toList());
+        List<Long> visited = new ArrayList<>();
+
+        userService.forEach(user -> visited.add(user.getId()));
+
+        Assertions.assertEquals(10, visited.size());
+        Assertions.assertEquals(10, userService.findAll().size());
+    }
+
+    private static UserData user(int index) {
+        return UserData.Builder.fromScratch()
+                .setMail(String.format("user%d@example.com", index))
+                .setFirstName("firstName" + index)
+                .setLastName("lastName" + index)
+                .setBirthDate(LocalDate.of(1990, 1, 1).plusDays(index))
+                .build();
+    }
+}
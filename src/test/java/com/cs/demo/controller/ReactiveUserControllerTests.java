@@ -0,0 +1,439 @@
+package com.cs.demo.controller;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.ReactiveUserRepository;
+import com.cs.demo.service.ReactiveUserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveUserControllerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveUserService service;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    private UserData userData;
+
+    @BeforeEach
+    void setup() {
+        userData = UserData.Builder
+                .fromScratch()
+                .setMail("test@example.com")
+                .setFirstName("firstName")
+                .setLastName("lastName")
+                .setBirthDate(LocalDate.of(1999, 12, 31))
+                .setAddress("Example str., 1")
+                .setTel("+1555232323")
+                .build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll().block();
+        userData = null;
+    }
+
+    @Test
+    void testGetAllUsersShouldDoneWell() {
+        save(userData);
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.now())
+                .build());
+
+        webTestClient.get().uri("/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    void testGetAllUsersShouldGetNotModifiedWhenTableIsUnchanged() {
+        save(userData);
+
+        String eTag = webTestClient.get().uri("/users")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(UserData.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get().uri("/users")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+
+        webTestClient.get().uri("/users")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    void testFindAllUsersByRangeShouldDoneWell() {
+        UserData user1 = save(userData);
+        UserData user2 = save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build());
+
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("yetAnotherTest@example.com")
+                .setBirthDate(LocalDate.of(2001, 1, 1))
+                .build());
+
+        webTestClient.get().uri(String.format("/users?from=%s&to=%s",
+                        LocalDate.of(1999, 12, 1),
+                        LocalDate.of(2001, 1, 1)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0]['id']").isEqualTo(user1.getId())
+                .jsonPath("$[1]['id']").isEqualTo(user2.getId());
+    }
+
+    @Test
+    void testFindAllUsersShouldGet4xxErrorWhenRangeIsInvalid() {
+        webTestClient.get().uri(String.format("/users?from=%s&to=%s",
+                        LocalDate.of(2001, 1, 1),
+                        LocalDate.of(1999, 12, 1)))
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testGetUsersPageShouldDoneWell() {
+        UserData user1 = save(userData);
+        UserData user2 = save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+        UserData user3 = save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("yetAnotherTest@example.com")
+                .build());
+
+        webTestClient.get().uri("/users?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$['content'].length()").isEqualTo(2)
+                .jsonPath("$['content'][0]['id']").isEqualTo(user1.getId())
+                .jsonPath("$['content'][1]['id']").isEqualTo(user2.getId())
+                .jsonPath("$['next']").isEqualTo(cursorAfter(user2));
+
+        webTestClient.get().uri("/users?limit=2&cursor=" + cursorAfter(user2))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$['content'].length()").isEqualTo(1)
+                .jsonPath("$['content'][0]['id']").isEqualTo(user3.getId())
+                .jsonPath("$['next']").doesNotExist();
+    }
+
+    @Test
+    void testGetUsersPageShouldGet4xxErrorWhenLimitIsInvalid() {
+        webTestClient.get().uri("/users?limit=0")
+                .exchange()
+                .expectStatus().is4xxClientError();
+        webTestClient.get().uri("/users?limit=10&cursor=%%%")
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testExportUsersShouldDoneWell() {
+        save(userData);
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+
+        webTestClient.get().uri("/users/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(UserData.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void testFindUserByIdShouldDoneWell() {
+        UserData user = save(userData);
+
+        webTestClient.get().uri(String.format("/users/%d", user.getId()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, String.format("\"user-%d-0\"", user.getId()))
+                .expectBody()
+                .jsonPath("$['id']").isEqualTo(user.getId())
+                .jsonPath("$['mail']").isEqualTo(user.getMail())
+                .jsonPath("$['firstName']").isEqualTo(user.getFirstName())
+                .jsonPath("$['lastName']").isEqualTo(user.getLastName())
+                .jsonPath("$['birthDate']").isEqualTo(user.getBirthDate().toString());
+
+        webTestClient.get().uri(String.format("/users/%d", user.getId()))
+                .header(HttpHeaders.IF_NONE_MATCH, String.format("\"user-%d-0\"", user.getId()))
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void testAddNewUserShouldDoneWell() {
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(userData)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$['id']").exists()
+                .jsonPath("$['mail']").isEqualTo(userData.getMail())
+                .jsonPath("$['firstName']").isEqualTo(userData.getFirstName())
+                .jsonPath("$['lastName']").isEqualTo(userData.getLastName())
+                .jsonPath("$['birthDate']").isEqualTo(userData.getBirthDate().toString());
+    }
+
+    @Test
+    void testAddUserShouldGet4xxErrorWhenEmailIsInvalid() {
+        save(userData);
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(UserData.Builder.basedAt(userData).setId(null).build())
+                .exchange()
+                .expectStatus().is4xxClientError();
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(UserData.Builder.basedAt(userData).setId(null).setMail("Test@example").build())
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testAddUserShouldGet4xxErrorWhenBirthDateInvalid() {
+        UserData user1 = UserData.Builder.basedAt(userData)
+                .setBirthDate(LocalDate.now())
+                .build();
+        UserData user2 = UserData.Builder.basedAt(userData)
+                .setBirthDate(LocalDate.now().plusYears(1))
+                .build();
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user1)
+                .exchange()
+                .expectStatus().is4xxClientError();
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testUpdateExistingUserShouldDoneWell() {
+        UserData user1 = save(userData);
+        UserData user2 = UserData.Builder.basedAt(userData)
+                .setId(user1.getId())
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build();
+
+        webTestClient.put().uri(String.format("/users/%d", user1.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, String.format("\"user-%d-1\"", user1.getId()))
+                .expectBody()
+                .jsonPath("$['id']").isEqualTo(user2.getId())
+                .jsonPath("$['mail']").isEqualTo(user2.getMail())
+                .jsonPath("$['firstName']").isEqualTo(user2.getFirstName())
+                .jsonPath("$['lastName']").isEqualTo(user2.getLastName())
+                .jsonPath("$['birthDate']").isEqualTo(user2.getBirthDate().toString());
+    }
+
+    @Test
+    void testUpdateExistingUserShouldGet4xxErrorWhenEmailIsInvalid() {
+        UserData user1 = save(userData);
+        UserData user2 = UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build();
+
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build());
+
+        webTestClient.put().uri(String.format("/users/%d", user1.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testUpdateExistingUserShouldGet4xxErrorWhenAgeIsInvalid() {
+        UserData user1 = save(userData);
+        UserData user2 = UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setBirthDate(LocalDate.now())
+                .build();
+
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build());
+
+        webTestClient.put().uri(String.format("/users/%d", user1.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testUpdateExistingUserShouldGet4xxErrorWhenVersionIsStale() {
+        UserData user = save(userData);
+        String eTag = String.format("\"user-%d-0\"", user.getId());
+
+        webTestClient.patch().uri(String.format("/users/%d", user.getId()))
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(UserData.Builder.fromScratch().setFirstName("anotherFirstName").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, String.format("\"user-%d-1\"", user.getId()));
+
+        webTestClient.put().uri(String.format("/users/%d", user.getId()))
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(userData)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    void testEditExistingUserShouldDoneWell() {
+        UserData user1 = save(userData);
+        UserData user2 = UserData.Builder.fromScratch()
+                .setFirstName("anotherFirstName")
+                .build();
+
+        webTestClient.patch().uri(String.format("/users/%d", user1.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$['id']").isEqualTo(user1.getId())
+                .jsonPath("$['mail']").isEqualTo(user1.getMail())
+                .jsonPath("$['firstName']").isEqualTo(user2.getFirstName())
+                .jsonPath("$['lastName']").isEqualTo(user1.getLastName())
+                .jsonPath("$['birthDate']").isEqualTo(user1.getBirthDate().toString());
+    }
+
+    @Test
+    void testEditShouldGet4xxErrorWhenUserNotExists() {
+        UserData user2 = UserData.Builder.fromScratch()
+                .setFirstName("anotherFirstName")
+                .build();
+
+        webTestClient.patch().uri(String.format("/users/%d", 0))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testEditExistingUserShouldGet4xxErrorWhenEmailIsInvalid() {
+        UserData user1 = save(userData);
+        UserData user2 = UserData.Builder.fromScratch()
+                .setMail("another.test@example.com")
+                .build();
+
+        save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build());
+
+        webTestClient.patch().uri(String.format("/users/%d", user1.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testEditExistingUserShouldGet4xxErrorWhenAgeIsInvalid() {
+        UserData user1 = save(userData);
+        UserData user2 = UserData.Builder.fromScratch()
+                .setBirthDate(LocalDate.now())
+                .build();
+
+        webTestClient.patch().uri(String.format("/users/%d", user1.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user2)
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void testDeleteExistingUserShouldDoneWell() {
+        userData = save(userData);
+
+        webTestClient.delete().uri(String.format("/users/%d", userData.getId()))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri(String.format("/users/%d", userData.getId()))
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+
+    private UserData save(UserData data) {
+        return service.save(data).block();
+    }
+
+    private static String cursorAfter(UserData data) {
+        return UserRequests.encodeCursor(String.valueOf(data.getId()));
+    }
+}
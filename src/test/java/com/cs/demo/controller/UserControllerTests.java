@@ -1,25 +1,47 @@
 package com.cs.demo.controller;
 
+import com.cs.demo.config.SqlStatementCounter;
 import com.cs.demo.model.UserData;
 import com.cs.demo.repository.UserRepository;
+import com.cs.demo.service.UserCache;
+import com.cs.demo.service.UserMailIndex;
+import com.cs.demo.service.UserStatistics;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -35,6 +57,21 @@ class UserControllerTests {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserMailIndex userMailIndex;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserStatistics userStatistics;
+
     private UserData userData;
 
     @BeforeEach
@@ -53,6 +90,7 @@ class UserControllerTests {
     @AfterEach
     void cleanup() {
         userRepository.deleteAll();
+        userCache.clear();
         userData = null;
     }
 
@@ -96,6 +134,134 @@ class UserControllerTests {
                 .andExpect(jsonPath("$[1]['id']").value(user2.getId()));
     }
 
+    @Test
+    void testCountUsersByRangeShouldDoneWell() throws Exception {
+        userRepository.save(userData);
+        userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(1980, 1, 1))
+                .build());
+
+        mockMvc.perform(get("/users/count")
+                        .param("from", "1999-01-01")
+                        .param("to", "2000-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("1"));
+
+        mockMvc.perform(get("/users/count")
+                        .param("from", "2000-01-01")
+                        .param("to", "1999-01-01"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void testSearchUsersShouldDoneWell() throws Exception {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .setFirstName("anotherFirstName")
+                .build());
+
+        mockMvc.perform(get("/users/search").param("q", "anotherfirst"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0]['id']").value(user2.getId()));
+
+        mockMvc.perform(get("/users/search").param("q", "lastNam").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0]['id']").value(user1.getId()));
+
+        mockMvc.perform(get("/users/search").param("q", " "))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void testGetUsersStatsShouldDoneWell() throws Exception {
+        int year = LocalDate.now().getYear();
+
+        userStatistics.reconcile();
+        userRepository.save(UserData.Builder.basedAt(userData)
+                .setBirthDate(LocalDate.of(year - 30, 1, 1))
+                .build());
+        userRepository.save(UserData.Builder.basedAt(userData)
+                .setMail("another.test@example.com")
+                .setBirthDate(LocalDate.of(year - 5, 1, 1))
+                .build());
+
+        mockMvc.perform(get("/users/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath(String.format("$.byBirthYear['%d']", year - 30)).value(1))
+                .andExpect(jsonPath(String.format("$.byBirthYear['%d']", year - 5)).value(1))
+                .andExpect(jsonPath("$.byAge['<18']").value(1))
+                .andExpect(jsonPath("$.byAge['28-37']").value(1));
+    }
+
+    @Test
+    void testGetUsersWithFieldsShouldDoneWell() throws Exception {
+        UserData user = userRepository.save(userData);
+
+        mockMvc.perform(get("/users").param("fields", "id,mail"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].length()").value(2))
+                .andExpect(jsonPath("$[0]['id']").value(user.getId()))
+                .andExpect(jsonPath("$[0]['mail']").value(user.getMail()));
+
+        mockMvc.perform(get("/users")
+                        .param("from", "1999-01-01")
+                        .param("to", "2000-01-01")
+                        .param("fields", "firstName, birthDate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].length()").value(2))
+                .andExpect(jsonPath("$[0]['firstName']").value(user.getFirstName()))
+                .andExpect(jsonPath("$[0]['birthDate']").value(user.getBirthDate().toString()));
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())).param("fields", "lastName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$['lastName']").value(user.getLastName()));
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())).param("fields", "tel,id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$['tel']").value(user.getTel()));
+    }
+
+    @Test
+    void testGetUsersWithFieldsShouldGet4xxErrorWhenFieldIsUnknown() throws Exception {
+        mockMvc.perform(get("/users").param("fields", "id,password"))
+                .andExpect(status().is4xxClientError());
+
+        mockMvc.perform(get("/users/0").param("fields", "id"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void testGetUsersWithFieldsShouldGet4xxErrorWhenLimitOrIdsAreGiven() throws Exception {
+        mockMvc.perform(get("/users").param("fields", "id").param("limit", "5"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users")
+                        .param("from", LocalDate.of(1990, 1, 1).toString())
+                        .param("to", LocalDate.of(2000, 1, 1).toString())
+                        .param("fields", "id")
+                        .param("limit", "5"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users").param("ids", "1").param("fields", "id"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users").param("ids", "1").param("fields", "id").param("limit", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testFindAllUsersShouldGet4xxErrorWhenRangeIsInvalid() throws Exception {
         mockMvc.perform(get(String.format("/users?from=%s&to=%s",
@@ -105,6 +271,230 @@ class UserControllerTests {
                 .andExpect(status().is4xxClientError());
     }
 
+    @Test
+    void testGetUsersPageShouldDoneWell() throws Exception {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+        UserData user3 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("yetAnotherTest@example.com")
+                .build());
+
+        String response = mockMvc.perform(get("/users?limit=2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0]['id']").value(user1.getId()))
+                .andExpect(jsonPath("$.content[1]['id']").value(user2.getId()))
+                .andExpect(jsonPath("$.next").exists())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String next = objectMapper.readTree(response).get("next").asText();
+
+        mockMvc.perform(get(String.format("/users?limit=2&cursor=%s", next))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0]['id']").value(user3.getId()))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void testGetUsersPageByRangeShouldDoneWell() throws Exception {
+        UserData user1 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build());
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+        UserData user3 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("yetAnotherTest@example.com")
+                .build());
+
+        userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("outOfRange@example.com")
+                .setBirthDate(LocalDate.of(2001, 1, 1))
+                .build());
+
+        String response = mockMvc.perform(get(String.format("/users?from=%s&to=%s&limit=2",
+                        LocalDate.of(1999, 12, 1),
+                        LocalDate.of(2001, 1, 1)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0]['id']").value(user2.getId()))
+                .andExpect(jsonPath("$.content[1]['id']").value(user3.getId()))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String next = objectMapper.readTree(response).get("next").asText();
+
+        mockMvc.perform(get(String.format("/users?from=%s&to=%s&limit=2&cursor=%s",
+                        LocalDate.of(1999, 12, 1),
+                        LocalDate.of(2001, 1, 1),
+                        next))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0]['id']").value(user1.getId()))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void testGetUsersPageShouldGet4xxErrorWhenLimitIsInvalid() throws Exception {
+        mockMvc.perform(get("/users?limit=0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+        mockMvc.perform(get("/users?limit=1000000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void testGetUsersPageShouldGet4xxErrorWhenCursorIsInvalid() throws Exception {
+        mockMvc.perform(get("/users?limit=10&cursor=invalid")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void testGetUsersByIdsShouldDoneWell() throws Exception {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+        long missingId = user2.getId() + 1000;
+
+        mockMvc.perform(get("/users")
+                        .param("ids", String.format("%d,%d,%d", user2.getId(), missingId, user1.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0]['id']").value(user2.getId()))
+                .andExpect(jsonPath("$.content[1]['id']").value(user1.getId()))
+                .andExpect(jsonPath("$.missing.length()").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(missingId));
+
+        mockMvc.perform(post("/users/lookup")
+                        .content(objectMapper.writeValueAsString(List.of(user1.getId(), missingId, user2.getId())))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0]['id']").value(user1.getId()))
+                .andExpect(jsonPath("$.content[1]['id']").value(user2.getId()))
+                .andExpect(jsonPath("$.missing[0]").value(missingId));
+    }
+
+    @Test
+    void testGetUsersByIdsShouldGet4xxErrorWhenIdsAreInvalid() throws Exception {
+        mockMvc.perform(post("/users/lookup")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+
+        mockMvc.perform(post("/users/lookup")
+                        .content("[1, null]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+
+        mockMvc.perform(get("/users").param("ids", "1,a"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void testGetUsersByIdsShouldGet4xxErrorWhenLimitIsGiven() throws Exception {
+        mockMvc.perform(get("/users").param("ids", "1").param("limit", "5"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users")
+                        .param("from", LocalDate.of(1990, 1, 1).toString())
+                        .param("to", LocalDate.of(2000, 1, 1).toString())
+                        .param("ids", "1")
+                        .param("limit", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetUsersByIdsShouldGet400WhenRangeOrCursorIsGiven() throws Exception {
+        mockMvc.perform(get("/users")
+                        .param("ids", "1")
+                        .param("from", LocalDate.of(1990, 1, 1).toString())
+                        .param("to", LocalDate.of(2000, 1, 1).toString()))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users").param("ids", "1").param("cursor", UserRequests.encodeCursor("0")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetUsersShouldGet400WhenCursorIsGivenWithoutLimit() throws Exception {
+        userRepository.save(userData);
+
+        mockMvc.perform(get("/users").param("cursor", UserRequests.encodeCursor("0")))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users")
+                        .param("from", LocalDate.of(1990, 1, 1).toString())
+                        .param("to", LocalDate.of(2000, 1, 1).toString())
+                        .param("cursor", UserRequests.encodeCursor("0")))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/users").param("fields", "id").param("cursor", UserRequests.encodeCursor("0")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportUsersShouldDoneWell() throws Exception {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+
+        MvcResult result = mockMvc.perform(get("/users/export")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(String.format("%s\n%s\n",
+                        objectMapper.writeValueAsString(user1),
+                        objectMapper.writeValueAsString(user2))));
+    }
+
+    @Test
+    void testExportUsersShouldRecordStatementsOfTheStream() throws Exception {
+        userRepository.save(userData);
+
+        MvcResult result = mockMvc.perform(get("/users/export")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("http.server.requests.sql.statements")
+                .tag("uri", "/users/export")
+                .summary();
+
+        Assertions.assertTrue(statements.totalAmount() > 0);
+        Assertions.assertTrue(meterRegistry.get("http.server.requests.connection.acquisition")
+                .tag("uri", "/users/export")
+                .timer()
+                .totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
     @Test
     void testFindUserByIdShouldDoneWell() throws Exception {
         UserData user = userRepository.save(userData);
@@ -119,6 +509,74 @@ class UserControllerTests {
                 .andExpect(jsonPath("$['birthDate']").value(user.getBirthDate().toString()));
     }
 
+    @Test
+    void testFindUserByIdShouldGet304WhenETagMatches() throws Exception {
+        UserData user = userRepository.save(userData);
+
+        String eTag = mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                        .content("{\"firstName\":\"anotherFirstName\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$['firstName']").value("anotherFirstName"))
+                .andExpect(jsonPath("$['version']").doesNotExist());
+    }
+
+    @Test
+    void testGetAllUsersShouldGet304WithoutQueryWhenETagMatches() throws Exception {
+        userRepository.save(userData);
+
+        String eTag = mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        long before = sqlStatementCounter.count();
+
+        mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        Assertions.assertEquals(before, sqlStatementCounter.count());
+
+        mockMvc.perform(post("/users")
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(userData)
+                                .setId(null)
+                                .setMail("another.test@example.com")
+                                .build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void testUpdateUserShouldDoneWellWhenUserIsReplaced() throws Exception {
+        UserData user = userRepository.save(userData);
+
+        mockMvc.perform(put(String.format("/users/%d", user.getId()))
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(userData)
+                                .setLastName("anotherLastName")
+                                .build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['id']").value(user.getId()))
+                .andExpect(jsonPath("$['lastName']").value("anotherLastName"));
+
+        Assertions.assertEquals(1L, userRepository.findById(user.getId()).orElseThrow().getVersion());
+    }
+
     @Test
     void testAddNewUserShouldDoneWell() throws Exception {
         mockMvc.perform(post("/users")
@@ -142,6 +600,19 @@ class UserControllerTests {
                 .andExpect(status().is4xxClientError());
     }
 
+    @Test
+    void testAddUserShouldGet4xxErrorWhenEmailIsMissingInMailIndex() throws Exception {
+        userRepository.save(userData);
+        userMailIndex.remove(userData.getMail());
+
+        mockMvc.perform(post("/users")
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(userData)
+                                .setId(null)
+                                .build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+    }
+
     @Test
     void testAddUserShouldGet4xxErrorWhenBirthDateInvalid() throws Exception {
         UserData user1 = UserData.Builder.basedAt(userData)
@@ -161,6 +632,93 @@ class UserControllerTests {
                 .andExpect(status().is4xxClientError());
     }
 
+    @Test
+    void testAddUsersShouldDoneWell() throws Exception {
+        userRepository.save(userData);
+
+        List<UserData> users = List.of(
+                UserData.Builder.basedAt(userData)
+                        .setMail("another.test@example.com")
+                        .build(),
+                userData,
+                UserData.Builder.basedAt(userData)
+                        .setMail("invalid")
+                        .build(),
+                UserData.Builder.basedAt(userData)
+                        .setMail("another.test@example.com")
+                        .build(),
+                UserData.Builder.basedAt(userData)
+                        .setMail("yetAnotherTest@example.com")
+                        .setBirthDate(LocalDate.now())
+                        .build());
+
+        mockMvc.perform(post("/users/batch")
+                        .content(objectMapper.writeValueAsString(users))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0]['id']").exists())
+                .andExpect(jsonPath("$[0]['error']").doesNotExist())
+                .andExpect(jsonPath("$[1]['id']").doesNotExist())
+                .andExpect(jsonPath("$[1]['error']").exists())
+                .andExpect(jsonPath("$[2]['error']").exists())
+                .andExpect(jsonPath("$[3]['error']").exists())
+                .andExpect(jsonPath("$[4]['error']").exists());
+
+        mockMvc.perform(get("/users")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void testAddUsersShouldRejectNullUsers() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .content(String.format("[%s, null]", objectMapper.writeValueAsString(userData)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0]['id']").exists())
+                .andExpect(jsonPath("$[1]['id']").doesNotExist())
+                .andExpect(jsonPath("$[1]['error']").exists());
+    }
+
+    @Test
+    void testAddUsersShouldInsertOneByOneWhenBatchHitsTakenMail() throws Exception {
+        userRepository.save(userData);
+        userMailIndex.remove(userData.getMail());
+
+        List<UserData> users = List.of(
+                UserData.Builder.basedAt(userData)
+                        .setId(null)
+                        .setMail("another.test@example.com")
+                        .build(),
+                UserData.Builder.basedAt(userData)
+                        .setId(null)
+                        .build());
+
+        mockMvc.perform(post("/users/batch")
+                        .content(objectMapper.writeValueAsString(users))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0]['id']").exists())
+                .andExpect(jsonPath("$[1]['id']").doesNotExist())
+                .andExpect(jsonPath("$[1]['error']").value("user with this email already exists"));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void testAddUsersShouldGet4xxErrorWhenBatchIsEmpty() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+    }
+
     @Test
     void testUpdateExistingUserShouldDoneWell() throws Exception {
         UserData user1 = userRepository.save(userData);
@@ -240,6 +798,260 @@ class UserControllerTests {
                 .andExpect(jsonPath("$['birthDate']").value(user1.getBirthDate().toString()));
     }
 
+    @Test
+    void testEditExistingUserWithIfMatchShouldIssueSingleStatement() throws Exception {
+        UserData user = userRepository.save(userData);
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                .andExpect(status().isOk());
+
+        long before = sqlStatementCounter.count();
+
+        mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, String.format("\"user-%d-%d\"", user.getId(), user.getVersion()))
+                        .content("{\"mail\":\"another.test@example.com\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['mail']").value("another.test@example.com"))
+                .andExpect(jsonPath("$['firstName']").value(user.getFirstName()));
+
+        Assertions.assertEquals(1, sqlStatementCounter.count() - before);
+        Assertions.assertEquals("another.test@example.com",
+                userRepository.findById(user.getId()).orElseThrow().getMail());
+    }
+
+    @Test
+    void testEditNotCachedUserShouldIssueUpdateAndSelect() throws Exception {
+        UserData user = userRepository.save(userData);
+        long before = sqlStatementCounter.count();
+
+        mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                        .content("{\"lastName\":\"anotherLastName\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['lastName']").value("anotherLastName"))
+                .andExpect(jsonPath("$['mail']").value(user.getMail()));
+
+        Assertions.assertEquals(2, sqlStatementCounter.count() - before);
+    }
+
+    @Test
+    void testEditExistingUserShouldGet412WhenIfMatchIsStale() throws Exception {
+        UserData user = userRepository.save(userData);
+        String eTag = String.format("\"user-%d-%d\"", user.getId(), user.getVersion());
+
+        String newETag = mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content("{\"firstName\":\"anotherFirstName\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content("{\"lastName\":\"anotherLastName\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(objectMapper.writeValueAsString(user))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, newETag)
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(user)
+                                .setTel(null)
+                                .build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['firstName']").value(user.getFirstName()))
+                .andExpect(jsonPath("$['tel']").doesNotExist());
+
+        UserData result = userRepository.findById(user.getId()).orElseThrow();
+
+        Assertions.assertEquals(user.getFirstName(), result.getFirstName());
+        Assertions.assertNull(result.getTel());
+        Assertions.assertEquals(2L, result.getVersion());
+    }
+
+    @Test
+    void testUpdateShouldGet412WhenIfMatchNamesMissingUser() throws Exception {
+        mockMvc.perform(put("/users/0")
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .content(objectMapper.writeValueAsString(userData))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/users/0")
+                        .header(HttpHeaders.IF_MATCH, "\"user-0-0\"")
+                        .content("{\"lastName\":\"anotherLastName\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void testUpdateExistingUserConcurrentlyWithoutIfMatchShouldSucceed() throws Exception {
+        UserData user = userRepository.save(userData);
+        int threads = 4;
+        int updatesPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < updatesPerThread; j++) {
+                    mockMvc.perform(put(String.format("/users/%d", user.getId()))
+                                    .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(userData)
+                                            .setAddress(String.format("%d-%d", thread, j))
+                                            .build()))
+                                    .contentType(MediaType.APPLICATION_JSON))
+                            .andExpect(status().isOk());
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        executor.shutdown();
+
+        Assertions.assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void testUpdateExistingUserWithIfMatchShouldIssueSingleStatement() throws Exception {
+        UserData user = userRepository.save(userData);
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                .andExpect(status().isOk());
+
+        long before = sqlStatementCounter.count();
+
+        mockMvc.perform(put(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, String.format("\"user-%d-%d\"", user.getId(), user.getVersion()))
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(user)
+                                .setMail("another.test@example.com")
+                                .build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['mail']").value("another.test@example.com"));
+
+        Assertions.assertEquals(1, sqlStatementCounter.count() - before);
+    }
+
+    @Test
+    void testUpdateExistingUserWithIfMatchShouldGet4xxErrorWhenMailIsTaken() throws Exception {
+        UserData another = userRepository.save(UserData.Builder.basedAt(userData)
+                .setMail("another.test@example.com")
+                .build());
+        UserData user = userRepository.save(userData);
+
+        mockMvc.perform(put(String.format("/users/%d", user.getId()))
+                        .header(HttpHeaders.IF_MATCH, String.format("\"user-%d-%d\"", user.getId(), user.getVersion()))
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(user)
+                                .setMail(another.getMail())
+                                .build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(userData.getMail(), userRepository.findById(user.getId()).orElseThrow().getMail());
+    }
+
+    @Test
+    void testEditExistingUserConcurrentlyShouldNotLoseUpdates() throws Exception {
+        UserData user = userRepository.save(userData);
+        int threads = 8;
+        int updatesPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Set<String> eTags = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < updatesPerThread; j++) {
+                    while (true) {
+                        String eTag = mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+                        MvcResult result = mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                                        .header(HttpHeaders.IF_MATCH, eTag)
+                                        .content(String.format("{\"address\":\"%d-%d\"}", thread, j))
+                                        .contentType(MediaType.APPLICATION_JSON))
+                                .andReturn();
+
+                        if (result.getResponse().getStatus() == 200) {
+                            Assertions.assertTrue(eTags.add(result.getResponse().getHeader(HttpHeaders.ETAG)));
+                            break;
+                        }
+
+                        Assertions.assertEquals(412, result.getResponse().getStatus());
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        executor.shutdown();
+
+        Assertions.assertEquals(threads * updatesPerThread, eTags.size());
+        Assertions.assertEquals((long) threads * updatesPerThread,
+                userRepository.findById(user.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testEditExistingUserConcurrentlyWithoutIfMatchShouldCacheCommittedRow() throws Exception {
+        UserData user = userRepository.save(userData);
+        int updatesPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<?>> futures = new ArrayList<>();
+
+        mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                .andExpect(status().isOk());
+
+        for (String field : List.of("address", "tel")) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < updatesPerThread; j++) {
+                    mockMvc.perform(patch(String.format("/users/%d", user.getId()))
+                                    .content(String.format("{\"%s\":\"%s-%d\"}", field, field, j))
+                                    .contentType(MediaType.APPLICATION_JSON))
+                            .andExpect(status().isOk());
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        executor.shutdown();
+
+        UserData stored = userRepository.findById(user.getId()).orElseThrow();
+
+        Assertions.assertEquals(2L * updatesPerThread, stored.getVersion());
+        mockMvc.perform(get(String.format("/users/%d", user.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG,
+                        String.format("\"user-%d-%d\"", user.getId(), stored.getVersion())))
+                .andExpect(jsonPath("$.address").value("address-" + (updatesPerThread - 1)))
+                .andExpect(jsonPath("$.tel").value("tel-" + (updatesPerThread - 1)));
+    }
+
     @Test
     void testEditShouldGet4xxErrorWhenUserNotExists() throws Exception {
         UserData user2 = UserData.Builder.fromScratch()
@@ -295,4 +1107,32 @@ class UserControllerTests {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().is4xxClientError());
     }
+
+    @Test
+    void testMetricsShouldDoneWell() throws Exception {
+        UserData user = userRepository.save(userData);
+
+        mockMvc.perform(get("/users/{id}", user.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(UserData.Builder.basedAt(userData)
+                                .setId(null)
+                                .setMail("another.test@example.com")
+                                .build())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/metrics/user.service").param("tag", "method:findById"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value").isNotEmpty());
+        mockMvc.perform(get("/actuator/metrics/user.validation"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/http.server.requests.sql.statements")
+                        .param("tag", "uri:/users/{id}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/sql.statements"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/cache.gets").param("tag", "cache:users.byId"))
+                .andExpect(status().isOk());
+    }
 }
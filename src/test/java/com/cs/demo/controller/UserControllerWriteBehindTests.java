@@ -0,0 +1,123 @@
+package com.cs.demo.controller;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserRepository;
+import com.cs.demo.service.UserCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.application.writeBehind.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:writeBehind"
+})
+@AutoConfigureMockMvc
+class UserControllerWriteBehindTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll();
+        userCache.clear();
+    }
+
+    @Test
+    void testAddUserAsyncShouldDoneWell() throws Exception {
+        String location = mockMvc.perform(post("/users")
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(user("test@example.com")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$['state']").value("PENDING"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        JsonNode status = awaitStatus(location);
+
+        Assertions.assertEquals("INSERTED", status.get("state").asText());
+        Assertions.assertTrue(userRepository.existsById(status.get("id").asLong()));
+    }
+
+    @Test
+    void testAddUserAsyncShouldRejectDuplicatedMail() throws Exception {
+        String location1 = addUserAsync("test@example.com");
+        String location2 = addUserAsync("test@example.com");
+
+        Assertions.assertEquals("INSERTED", awaitStatus(location1).get("state").asText());
+        Assertions.assertEquals("REJECTED", awaitStatus(location2).get("state").asText());
+        Assertions.assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void testAddUserShouldStaySynchronousWithoutPreference() throws Exception {
+        mockMvc.perform(post("/users")
+                        .content(objectMapper.writeValueAsString(user("test@example.com")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['id']").exists());
+
+        mockMvc.perform(get("/users/pending/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String addUserAsync(String mail) throws Exception {
+        return mockMvc.perform(post("/users")
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(user(mail)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+    }
+
+    private JsonNode awaitStatus(String location) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            JsonNode status = objectMapper.readTree(mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+
+            if (!status.get("state").asText().equals("PENDING")) {
+                return status;
+            }
+
+            Thread.sleep(50);
+        }
+
+        throw new AssertionError("user is still pending");
+    }
+
+    private static UserData user(String mail) {
+        return UserData.Builder.fromScratch()
+                .setMail(mail)
+                .setFirstName("firstName")
+                .setLastName("lastName")
+                .setBirthDate(LocalDate.of(1999, 12, 31))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.cs.demo.repository;
+
+import com.cs.demo.config.SqlStatementCounter;
+import com.cs.demo.model.UserData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+class UserRepositoryTests {
+
+    private static final String BIRTH_DATE_INDEX = "USER_DATA_BIRTH_DATE_IDX";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private SqlStatementCounter sqlStatementCounter;
+
+    @BeforeEach
+    void setup() {
+        List<UserData> users = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            users.add(UserData.Builder.fromScratch()
+                    .setMail(String.format("test%d@example.com", i))
+                    .setFirstName("firstName")
+                    .setLastName("lastName")
+                    .setBirthDate(LocalDate.of(1950, 1, 1).plusDays(i * 17L))
+                    .build());
+        }
+
+        userRepository.saveAll(users);
+        jdbcTemplate.execute("ANALYZE TABLE user_data");
+    }
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testFindAllByRangeShouldUseBirthDateIndex() {
+        LocalDate from = LocalDate.of(1970, 1, 1);
+        LocalDate to = LocalDate.of(1971, 1, 1);
+        String sql = captureStatement(() -> userRepository.fillAllByRange(from, to));
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, from, to);
+
+        Assertions.assertNotNull(plan);
+        Assertions.assertTrue(plan.contains(BIRTH_DATE_INDEX), plan);
+        Assertions.assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    @Test
+    void testFindAllByRangeAfterShouldUseBirthDateIndex() {
+        LocalDate from = LocalDate.of(1970, 1, 1);
+        LocalDate to = LocalDate.of(1971, 1, 1);
+        String sql = captureStatement(() -> userRepository.findAllByRangeAfter(from, to, 0L, Limit.of(100)));
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, from, to, from, 0L, 100);
+
+        Assertions.assertNotNull(plan);
+        Assertions.assertTrue(plan.contains(BIRTH_DATE_INDEX), plan);
+        Assertions.assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    @Test
+    void testFillAllByRangeShouldReturnOrderedObjects() {
+        List<UserData> users = userRepository.fillAllByRange(LocalDate.of(1970, 1, 1), LocalDate.of(1971, 1, 1));
+
+        Assertions.assertFalse(users.isEmpty());
+
+        for (int i = 1; i < users.size(); i++) {
+            Assertions.assertFalse(users.get(i).getBirthDate().isBefore(users.get(i - 1).getBirthDate()));
+        }
+    }
+
+    /**
+     * The SQL Hibernate generates for the single query {@code query} runs.
+     */
+    private String captureStatement(Runnable query) {
+        Mockito.clearInvocations(sqlStatementCounter);
+        query.run();
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(sqlStatementCounter).inspect(statements.capture());
+
+        return statements.getValue();
+    }
+}
@@ -0,0 +1,63 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "spring.application.birthDateIndex.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:birthDateIndex"
+})
+class UserBirthDateIndexIntegrationTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserBirthDateIndex userBirthDateIndex;
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testFindAllByRangeShouldUseIndex() {
+        List<UserData> users = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            users.add(UserData.Builder.fromScratch()
+                    .setMail(String.format("test%d@example.com", i))
+                    .setFirstName("firstName")
+                    .setLastName("lastName")
+                    .setBirthDate(LocalDate.of(1999, 12, 31).minusDays(i * 7L))
+                    .build());
+        }
+
+        userService.insertAll(users);
+        userService.deleteById(users.get(10).getId());
+        userService.update(users.get(20).getId(), UserData.Builder.fromScratch()
+                .setBirthDate(LocalDate.of(1950, 1, 1))
+                .build());
+
+        LocalDate from = LocalDate.of(1999, 1, 1);
+        LocalDate to = LocalDate.of(2000, 1, 1);
+
+        Assertions.assertTrue(userBirthDateIndex.isReady());
+        Assertions.assertEquals(userRepository.fillAllByRange(from, to).stream().map(UserData::getId).toList(),
+                userService.findAllByRange(from, to).stream().map(UserData::getId).toList());
+        Assertions.assertEquals(userRepository.countByRange(from, to), userService.countByRange(from, to));
+        Assertions.assertEquals(1, userService.countByRange(LocalDate.of(1950, 1, 1), LocalDate.of(1950, 1, 2)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.cs.demo.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class UserBirthDateIndexTests {
+
+    private static final LocalDate START = LocalDate.of(1950, 1, 1);
+
+    @Test
+    void testFindIdsShouldMatchModelOnRandomWrites() {
+        Random random = new Random(20240601L);
+        UserBirthDateIndex index = new UserBirthDateIndex();
+        Map<Long, LocalDate> model = new HashMap<>();
+
+        index.load(new long[0], new long[0], 0);
+
+        for (long id = 1; id <= UserBirthDateIndex.MERGE_THRESHOLD * 3L; id++) {
+            LocalDate birthDate = START.plusDays(random.nextInt(20_000));
+
+            index.add(id, birthDate);
+            model.put(id, birthDate);
+
+            if (random.nextInt(10) == 0) {
+                long other = 1 + random.nextInt((int) id);
+
+                index.remove(other);
+                model.remove(other);
+            } else if (random.nextInt(10) == 0) {
+                long other = 1 + random.nextInt((int) id);
+                LocalDate otherBirthDate = START.plusDays(random.nextInt(20_000));
+
+                index.put(other, otherBirthDate);
+                model.put(other, otherBirthDate);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            LocalDate from = START.plusDays(random.nextInt(20_000));
+            LocalDate to = from.plusDays(random.nextInt(2_000));
+            long[] expected = findIds(model, from, to);
+
+            Assertions.assertArrayEquals(expected, index.findIds(from, to));
+            Assertions.assertEquals(expected.length, index.count(from, to));
+        }
+    }
+
+    @Test
+    void testLoadShouldKeepWritesMadeWhileLoading() {
+        UserBirthDateIndex index = new UserBirthDateIndex();
+
+        index.add(3L, START.plusDays(5));
+        index.put(1L, START.plusDays(10));
+        index.remove(2L);
+
+        Assertions.assertFalse(index.isReady());
+
+        index.load(new long[]{START.toEpochDay(), START.plusDays(1).toEpochDay(), START.plusDays(5).toEpochDay()},
+                new long[]{1L, 2L, 3L}, 3);
+
+        Assertions.assertTrue(index.isReady());
+        Assertions.assertArrayEquals(new long[]{3L, 1L}, index.findIds(START, START.plusDays(100)));
+        Assertions.assertEquals(0, index.count(START, START.plusDays(5)));
+    }
+
+    private static long[] findIds(Map<Long, LocalDate> model, LocalDate from, LocalDate to) {
+        List<Map.Entry<Long, LocalDate>> entries = new ArrayList<>();
+
+        for (Map.Entry<Long, LocalDate> entry : model.entrySet()) {
+            if (!entry.getValue().isBefore(from) && entry.getValue().isBefore(to)) {
+                entries.add(entry);
+            }
+        }
+
+        entries.sort(Map.Entry.<Long, LocalDate>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+        return entries.stream()
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,47 @@
+package com.cs.demo.service;
+
+import com.cs.demo.DemoApplication;
+import com.cs.demo.model.UserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+class UserFileStorageTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testRestartShouldKeepUsers() {
+        UserData saved;
+
+        try (ConfigurableApplicationContext context = start()) {
+            saved = context.getBean(UserService.class).save(UserData.Builder.fromScratch()
+                    .setMail("test@example.com")
+                    .setFirstName("firstName")
+                    .setLastName("lastName")
+                    .setBirthDate(LocalDate.of(1999, 12, 31))
+                    .build());
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            Assertions.assertEquals("test@example.com", context.getBean(UserService.class)
+                    .findById(saved.getId())
+                    .map(UserData::getMail)
+                    .orElse(null));
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("file")
+                .run("--spring.application.storage.path=" + directory.resolve("users"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.cs.demo.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserSearchIndexTests {
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new UserSearchIndex();
+        index.put(1L, "John", "Smith", "john.smith@example.com");
+        index.put(2L, "Johanna", "Smithson", "johanna@example.com");
+        index.put(3L, "Peter", "Parker", "peter.parker@example.com");
+    }
+
+    @Test
+    void testSearchShouldMatchPrefix() {
+        Assertions.assertArrayEquals(new long[]{1L, 2L}, index.search("joh", 10));
+        Assertions.assertArrayEquals(new long[]{2L, 1L}, index.search("smithso", 10));
+        Assertions.assertArrayEquals(new long[]{3L}, index.search("PARK", 10));
+    }
+
+    @Test
+    void testSearchShouldRankExactWordsFirst() {
+        Assertions.assertArrayEquals(new long[]{1L, 2L}, index.search("smith ", 10));
+        Assertions.assertArrayEquals(new long[]{1L}, index.search("smith ", 1));
+    }
+
+    @Test
+    void testSearchShouldTolerateTypos() {
+        Assertions.assertArrayEquals(new long[]{3L}, index.search("petr parker", 10));
+        Assertions.assertEquals(0, index.search("xyz", 10).length);
+    }
+
+    @Test
+    void testPutAndRemoveShouldUpdateIndex() {
+        index.put(3L, "Mary", "Jane", "mary.jane@example.com");
+        index.remove(1L);
+
+        Assertions.assertArrayEquals(new long[]{2L}, index.search("joh", 10));
+        Assertions.assertEquals(0, index.search("peter", 10).length);
+        Assertions.assertArrayEquals(new long[]{3L}, index.search("mary", 10));
+    }
+
+    @Test
+    void testRemoveShouldCompactIndex() {
+        for (long id = 10; id < 5000; id++) {
+            index.put(id, "first" + id, "last" + id, String.format("user%d@example.com", id));
+        }
+
+        for (long id = 10; id < 5000; id++) {
+            if (id != 4321) {
+                index.remove(id);
+            }
+        }
+
+        Assertions.assertArrayEquals(new long[]{4321L}, index.search("first4321", 10));
+        Assertions.assertArrayEquals(new long[]{1L, 2L}, index.search("joh", 10));
+    }
+}
@@ -0,0 +1,275 @@
+package com.cs.demo.service;
+
+import com.cs.demo.config.ReplicaRoutingDataSource;
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserReplicas;
+import com.cs.demo.repository.UserReplicator;
+import com.cs.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "spring.application.replication.interval=PT1H",
+        "spring.application.replication.checkInterval=PT1H",
+        "spring.application.replication.maxLag=1s"
+})
+@ActiveProfiles("replicated")
+class UserServiceReplicationTests {
+
+    private static final long DIRECT_ID = 1_000_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserReplicas userReplicas;
+
+    @Autowired
+    private UserReplicator userReplicator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll();
+        userReplicator.replicate();
+        userReplicas.check();
+        userCache.clear();
+    }
+
+    @Test
+    void testWritesShouldReachReplicasByReplication() {
+        UserData saved = userService.save(user(1));
+
+        Assertions.assertEquals(1, countOn(null, saved.getId()));
+        Assertions.assertEquals(0, countOn(0, saved.getId()));
+        Assertions.assertEquals(0, countOn(1, saved.getId()));
+
+        userReplicator.replicate();
+
+        Assertions.assertEquals(1, countOn(0, saved.getId()));
+        Assertions.assertEquals(1, countOn(1, saved.getId()));
+    }
+
+    @Test
+    void testUpdateAndDeleteShouldReachReplicas() {
+        UserData first = userService.save(user(1));
+        UserData second = userService.save(user(2));
+
+        userReplicator.replicate();
+        userService.update(first.getId(), UserData.Builder.fromScratch().setMail("swap@example.com").build());
+        userService.update(second.getId(), UserData.Builder.fromScratch().setMail(first.getMail()).build());
+        userService.update(first.getId(), UserData.Builder.fromScratch().setMail(second.getMail()).build());
+        userReplicator.replicate();
+
+        Assertions.assertEquals(second.getMail(), mailOn(0, first.getId()));
+        Assertions.assertEquals(first.getMail(), mailOn(0, second.getId()));
+
+        userService.deleteById(first.getId());
+        userReplicator.replicate();
+
+        Assertions.assertEquals(0, countOn(0, first.getId()));
+        Assertions.assertEquals(1, countOn(0, second.getId()));
+    }
+
+    @Test
+    void testReadsShouldBeServedByReplicas() {
+        insertOnPrimary();
+        userReplicas.check();
+
+        Assertions.assertTrue(userService.findAll().isEmpty());
+        Assertions.assertTrue(userService.findById(DIRECT_ID).isEmpty());
+
+        userReplicator.replicate();
+        userReplicas.check();
+
+        Assertions.assertEquals(1, userService.findAll().size());
+        Assertions.assertTrue(userService.findById(DIRECT_ID).isPresent());
+    }
+
+    @Test
+    void testReadsShouldSeeOwnWritesBeforeReplication() {
+        userReplicas.startClient(0, position -> {});
+
+        try {
+            UserData saved = userService.save(user(1));
+            userReplicas.check();
+            userCache.clear();
+
+            Assertions.assertEquals(1, userService.findAll().size());
+            Assertions.assertTrue(userService.findById(saved.getId()).isPresent());
+        } finally {
+            userReplicas.finishClient();
+        }
+    }
+
+    @Test
+    void testReadsShouldBeServedByReplicasAfterWritesOfOtherClients() {
+        userService.save(user(1));
+        userReplicas.check();
+
+        Assertions.assertTrue(userService.findAll().isEmpty());
+    }
+
+    @Test
+    void testReadsTaggedWithTableVersionShouldSeeWritesOfOtherClients() {
+        userService.save(user(1));
+        userReplicas.check();
+        userReplicas.startClient(0, position -> {});
+
+        try {
+            userService.getTableVersion();
+
+            Assertions.assertEquals(1, userService.findAll().size());
+        } finally {
+            userReplicas.finishClient();
+        }
+
+        userReplicator.replicate();
+        userReplicas.check();
+        userReplicas.startClient(0, position -> {});
+
+        try {
+            userService.getTableVersion();
+
+            Assertions.assertEquals(1, userService.findAll().size());
+            Assertions.assertTrue(userReplicas.isLastReadFromReplica());
+        } finally {
+            userReplicas.finishClient();
+        }
+    }
+
+    @Test
+    void testReadsShouldBeServedByReplicasAfterRollback() throws InterruptedException {
+        UserData first = userService.save(user(1));
+        userReplicator.replicate();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.update(first.getId(), UserData.Builder.fromScratch()
+                    .setBirthDate(LocalDate.of(1980, 5, 5))
+                    .build());
+            status.setRollbackOnly();
+        });
+        UserData second = userService.save(user(2));
+        Thread.sleep(1100);
+        userReplicator.replicate();
+        insertOnPrimary();
+        userReplicas.check();
+
+        Assertions.assertEquals(1, countOn(0, second.getId()));
+        Assertions.assertEquals(2, userService.findAll().size());
+    }
+
+    @Test
+    void testReadsFromReplicasShouldNotBeCached() {
+        insertOnPrimary();
+        userReplicator.replicate();
+        userReplicas.check();
+
+        Assertions.assertTrue(userService.findById(DIRECT_ID).isPresent());
+        Assertions.assertTrue(userCache.getById(DIRECT_ID).isEmpty());
+    }
+
+    @Test
+    void testReadsShouldSeeClientPositionBeforeReplication() {
+        insertOnPrimary();
+        userReplicas.check();
+
+        long position = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM user_data_changes", Long.class);
+        List<Long> written = new ArrayList<>();
+
+        userReplicas.startClient(position, written::add);
+
+        try {
+            Assertions.assertEquals(1, userService.findAll().size());
+
+            userService.save(user(1));
+        } finally {
+            userReplicas.finishClient();
+        }
+
+        Assertions.assertEquals(1, written.size());
+        Assertions.assertTrue(written.get(0) > position);
+    }
+
+    @Test
+    void testReadsShouldGoToPrimaryWhenReplicasLag() throws InterruptedException {
+        insertOnPrimary();
+        Thread.sleep(1100);
+        userReplicas.check();
+
+        Assertions.assertEquals(1, userService.findAll().size());
+    }
+
+    @Test
+    void testReadsShouldGoToPrimaryWhenReplicasAreUnhealthy() {
+        executeOnReplicas("ALTER TABLE replication_status RENAME TO replication_status_broken");
+
+        try {
+            insertOnPrimary();
+            userReplicator.replicate();
+            userReplicas.check();
+
+            Assertions.assertEquals(0, countOn(0, DIRECT_ID));
+            Assertions.assertEquals(1, userService.findAll().size());
+        } finally {
+            executeOnReplicas("ALTER TABLE replication_status_broken RENAME TO replication_status");
+        }
+    }
+
+    private void insertOnPrimary() {
+        jdbcTemplate.update("INSERT INTO user_data (id, mail, first_name, last_name, birth_date, version) " +
+                "VALUES (?, 'direct@example.com', 'firstName', 'lastName', DATE '1990-01-01', 0)", DIRECT_ID);
+    }
+
+    private long countOn(Integer replica, long id) {
+        return ReplicaRoutingDataSource.on(replica, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_data WHERE id = ?", Long.class, id));
+    }
+
+    private String mailOn(Integer replica, long id) {
+        return ReplicaRoutingDataSource.on(replica, () -> jdbcTemplate.queryForObject(
+                "SELECT mail FROM user_data WHERE id = ?", String.class, id));
+    }
+
+    private void executeOnReplicas(String sql) {
+        for (int replica = 0; replica < 2; replica++) {
+            ReplicaRoutingDataSource.on(replica, () -> {
+                jdbcTemplate.execute(sql);
+                return null;
+            });
+        }
+    }
+
+    private static UserData user(int index) {
+        return UserData.Builder.fromScratch()
+                .setMail(String.format("user%d@example.com", index))
+                .setFirstName("firstName" + index)
+                .setLastName("lastName" + index)
+                .setBirthDate(LocalDate.of(1990, 1, 1).plusDays(index))
+                .setAddress("Example str., " + index)
+                .setTel("+1555" + index)
+                .build();
+    }
+}
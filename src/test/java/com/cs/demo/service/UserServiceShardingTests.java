@@ -0,0 +1,289 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.repository.UserRepository;
+import com.cs.demo.repository.UserShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@SpringBootTest
+@ActiveProfiles("sharded")
+class UserServiceShardingTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanup() {
+        userRepository.deleteAll();
+        userCache.clear();
+    }
+
+    @Test
+    void testInsertAllShouldSpreadUsersOverShards() {
+        userService.insertAll(users(100));
+
+        long total = 0;
+
+        for (int shard = 0; shard < userShards.getShardCount(); shard++) {
+            long count = countOn(shard);
+
+            Assertions.assertTrue(count > 0, "shard " + shard + " is empty");
+            total += count;
+        }
+
+        Assertions.assertEquals(4, userShards.getShardCount());
+        Assertions.assertEquals(100, total);
+        Assertions.assertEquals(100, userService.getStats().getTotal());
+    }
+
+    @Test
+    void testFindByIdAndFindByMailShouldDoneWell() {
+        List<UserData> saved = userService.insertAll(users(10));
+
+        userCache.clear();
+
+        for (UserData user : saved) {
+            Assertions.assertEquals(user.getMail(), userService.findById(user.getId()).orElseThrow().getMail());
+            Assertions.assertEquals(user.getId(), userService.findByMail(user.getMail()).orElseThrow().getId());
+        }
+
+        Assertions.assertTrue(userService.findByMail("unknown@example.com").isEmpty());
+    }
+
+    @Test
+    void testFindAllShouldMergeShardsInIdOrder() {
+        List<Long> ids = userService.insertAll(users(20)).stream()
+                .map(UserData::getId)
+                .sorted()
+                .toList();
+
+        Assertions.assertEquals(ids, userService.findAll().stream().map(UserData::getId).toList());
+    }
+
+    @Test
+    void testStreamsShouldPageThroughEveryShard() {
+        // Several pages per shard, with many users per birth date.
+        List<UserData> saved = userService.insertAll(new ArrayList<>(IntStream.range(0, 4500)
+                .mapToObj(index -> UserData.Builder.basedAt(user(index))
+                        .setBirthDate(LocalDate.of(1990, 1, 1).plusDays(index % 50))
+                        .build())
+                .toList()));
+        List<Long> byBirthDate = saved.stream()
+                .sorted(Comparator.comparing(UserData::getBirthDate).thenComparing(UserData::getId))
+                .map(UserData::getId)
+                .toList();
+        List<Long> ids = saved.stream().map(UserData::getId).sorted().toList();
+
+        try (Stream<Object[]> rows = userRepository.streamAllBirthDates()) {
+            Assertions.assertEquals(byBirthDate, rows.map(row -> (Long) row[1]).toList());
+        }
+
+        try (Stream<Object[]> rows = userRepository.streamAllNames()) {
+            Assertions.assertEquals(ids, rows.map(row -> (Long) row[0]).sorted().toList());
+        }
+    }
+
+    @Test
+    void testFindAllByRangeShouldMergeShardsInBirthDateOrder() {
+        List<UserData> saved = userService.insertAll(users(20));
+        List<Long> expected = saved.stream()
+                .filter(user -> user.getBirthDate().isBefore(LocalDate.of(1990, 1, 11)))
+                .sorted(Comparator.comparing(UserData::getBirthDate).thenComparing(UserData::getId))
+                .map(UserData::getId)
+                .toList();
+
+        List<UserData> users = userService.findAllByRange(LocalDate.of(1980, 1, 1), LocalDate.of(1990, 1, 11));
+
+        Assertions.assertEquals(10, users.size());
+        Assertions.assertEquals(expected, users.stream().map(UserData::getId).toList());
+    }
+
+    @Test
+    void testFindAllAfterShouldPageAcrossShards() {
+        List<Long> ids = userService.insertAll(users(20)).stream()
+                .map(UserData::getId)
+                .sorted()
+                .toList();
+        List<Long> paged = new ArrayList<>();
+        Long cursor = Long.MIN_VALUE;
+
+        while (true) {
+            List<UserData> page = userService.findAllAfter(cursor, 7);
+
+            if (page.isEmpty()) {
+                break;
+            }
+
+            page.forEach(user -> paged.add(user.getId()));
+            cursor = page.get(page.size() - 1).getId();
+        }
+
+        Assertions.assertEquals(ids, paged);
+    }
+
+    @Test
+    void testForEachShouldVisitUsersInIdOrder() {
+        List<Long> ids = userService.insertAll(users(20)).stream()
+                .map(UserData::getId)
+                .sorted()
+                .toList();
+        List<Long> visited = new ArrayList<>();
+
+        userService.forEach(user -> visited.add(user.getId()));
+
+        Assertions.assertEquals(ids, visited);
+    }
+
+    @Test
+    void testSaveShouldGetDataIntegrityViolationWhenMailIsTaken() {
+        userService.insertAll(users(10));
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> userService.save(user(5)));
+        Assertions.assertEquals(10, userService.findAll().size());
+    }
+
+    @Test
+    void testUpdateMailShouldReleaseThePreviousMail() {
+        UserData saved = userService.save(user(1));
+
+        userService.update(saved.getId(), UserData.Builder.fromScratch()
+                .setMail("changed@example.com")
+                .build());
+
+        Assertions.assertThrows(DataIntegrityViolationException.class,
+                () -> userService.save(UserData.Builder.basedAt(user(2)).setMail("changed@example.com").build()));
+        Assertions.assertNotNull(userService.save(user(1)).getId());
+        Assertions.assertEquals(saved.getId(), userService.findByMail("changed@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    void testConcurrentMailUpdatesShouldReleaseEveryReplacedMail() throws Exception {
+        UserData saved = userService.save(user(1));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int round = 0; round < 10; round++) {
+                List<String> mails = List.of("first" + round + "@example.com", "second" + round + "@example.com");
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> updates = new ArrayList<>();
+
+                for (String mail : mails) {
+                    updates.add(executor.submit(() -> {
+                        start.await();
+
+                        return userRepository.updateNonNullFields(saved.getId(), UserData.Builder.fromScratch()
+                                .setMail(mail)
+                                .build(), null);
+                    }));
+                }
+
+                start.countDown();
+
+                for (Future<?> update : updates) {
+                    update.get();
+                }
+
+                userCache.clear();
+                String mail = userService.findById(saved.getId()).orElseThrow().getMail();
+
+                for (String replaced : mails) {
+                    if (!replaced.equals(mail)) {
+                        UserData other = userService.save(UserData.Builder.basedAt(user(2))
+                                .setMail(replaced)
+                                .build());
+                        userService.deleteById(other.getId());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertNotNull(userService.save(user(1)).getId());
+    }
+
+    @Test
+    void testFindNamesAfterShouldPageAcrossShardsInIdOrder() {
+        List<Long> ids = userService.insertAll(users(20)).stream()
+                .map(UserData::getId)
+                .sorted()
+                .toList();
+        List<Object[]> page = userRepository.findNamesAfter(ids.get(4), Limit.of(7));
+
+        Assertions.assertEquals(ids.subList(5, 12), page.stream().map(row -> (Long) row[0]).toList());
+    }
+
+    @Test
+    void testDeleteByIdShouldReleaseTheMail() {
+        UserData saved = userService.save(user(1));
+
+        userService.deleteById(saved.getId());
+
+        Assertions.assertTrue(userService.findById(saved.getId()).isEmpty());
+        Assertions.assertNotEquals(saved.getId(), userService.save(user(1)).getId());
+    }
+
+    @Test
+    void testInsertAllShouldRollBackEveryShardWhenOneFails() {
+        List<UserData> users = users(20);
+        users.set(10, UserData.Builder.basedAt(users.get(10)).setLastName(null).build());
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> userService.insertAll(users));
+
+        for (int shard = 0; shard < userShards.getShardCount(); shard++) {
+            Assertions.assertEquals(0, countOn(shard));
+        }
+
+        Assertions.assertEquals(20, userService.insertAll(users(20)).size());
+    }
+
+    private long countOn(int shard) {
+        return userShards.on(shard, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_data", Long.class));
+    }
+
+    private static List<UserData> users(int count) {
+        return new ArrayList<>(IntStream.range(0, count).mapToObj(UserServiceShardingTests::user).toList());
+    }
+
+    private static UserData user(int index) {
+        return UserData.Builder.fromScratch()
+                .setMail(String.format("user%d@example.com", index))
+                .setFirstName("firstName" + index)
+                .setLastName("lastName" + index)
+                .setBirthDate(LocalDate.of(1990, 1, 1).plusDays(index))
+                .setAddress("Example str., " + index)
+                .setTel("+1555" + index)
+                .build();
+    }
+}
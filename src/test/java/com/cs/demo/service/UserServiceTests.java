@@ -8,10 +8,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @SpringBootTest
 class UserServiceTests {
@@ -22,6 +26,18 @@ class UserServiceTests {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserMailIndex userMailIndex;
+
+    @Autowired
+    private UserStatistics userStatistics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private UserData userData;
 
     @BeforeEach
@@ -40,6 +56,7 @@ class UserServiceTests {
     @AfterEach
     void cleanup() {
         userRepository.deleteAll();
+        userCache.clear();
         userData = null;
     }
 
@@ -83,6 +100,44 @@ class UserServiceTests {
         Assertions.assertEquals(user2.getId(), users.get(1).getId());
     }
 
+    @Test
+    void testFindAllAfterShouldReturnObject() {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+
+        List<UserData> users = userService.findAllAfter(user1.getId(), 10);
+
+        Assertions.assertEquals(1, users.size());
+        Assertions.assertEquals(user2.getId(), users.get(0).getId());
+    }
+
+    @Test
+    void testFindAllByRangeAfterShouldReturnObject() {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+
+        userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("yetAnotherTest@example.com")
+                .setBirthDate(LocalDate.of(2000, 12, 31))
+                .build());
+
+        List<UserData> users = userService.findAllByRangeAfter(
+                LocalDate.of(1999, 12, 31),
+                LocalDate.of(2001, 1, 1),
+                user1.getId(),
+                1);
+
+        Assertions.assertEquals(1, users.size());
+        Assertions.assertEquals(user2.getId(), users.get(0).getId());
+    }
+
     @Test
     void testFindByIdShouldReturnObject() {
         UserData user = userRepository.save(userData);
@@ -101,6 +156,188 @@ class UserServiceTests {
                 .orElse(false));
     }
 
+    @Test
+    void testFindByIdShouldUseCache() {
+        UserData user = userRepository.save(userData);
+
+        userService.findById(user.getId());
+        userRepository.deleteById(user.getId());
+
+        long hits = userCache.getByIdStats().hitCount();
+
+        Assertions.assertTrue(userService.findById(user.getId()).isPresent());
+        Assertions.assertEquals(hits + 1, userCache.getByIdStats().hitCount());
+    }
+
+    @Test
+    void testFindByIdShouldNotShareCachedInstance() {
+        UserData user = userRepository.save(userData);
+
+        userService.findById(user.getId()).orElseThrow().setVersion(user.getVersion() + 10);
+
+        Assertions.assertEquals(user.getVersion(), userService.findById(user.getId()).orElseThrow().getVersion());
+
+        userService.findByMail(user.getMail()).orElseThrow().setId(null);
+
+        Assertions.assertEquals(user.getId(), userService.findByMail(user.getMail()).orElseThrow().getId());
+    }
+
+    @Test
+    void testFindAllByIdShouldReturnObject() {
+        UserData user1 = userRepository.save(userData);
+        UserData user2 = userRepository.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setMail("another.test@example.com")
+                .build());
+
+        userService.findById(user1.getId());
+
+        long hits = userCache.getByIdStats().hitCount();
+        Map<Long, UserData> users = userService.findAllById(List.of(user1.getId(), user2.getId(), user2.getId() + 1));
+
+        Assertions.assertEquals(Set.of(user1.getId(), user2.getId()), users.keySet());
+        Assertions.assertEquals(user2.getMail(), users.get(user2.getId()).getMail());
+        Assertions.assertEquals(hits + 1, userCache.getByIdStats().hitCount());
+    }
+
+    @Test
+    void testGetStatsShouldFollowWrites() {
+        userStatistics.reconcile();
+
+        UserData user = userService.save(userData);
+
+        Assertions.assertEquals(1, userService.getStats().getTotal());
+        Assertions.assertEquals(Map.of(1999, 1L), userService.getStats().getByBirthYear());
+
+        userService.update(user.getId(), UserData.Builder.fromScratch()
+                .setBirthDate(LocalDate.of(1980, 5, 5))
+                .build());
+
+        Assertions.assertEquals(Map.of(1980, 1L), userService.getStats().getByBirthYear());
+
+        userService.save(UserData.Builder.basedAt(userData)
+                .setId(user.getId())
+                .setBirthDate(LocalDate.of(1990, 1, 1))
+                .build());
+
+        Assertions.assertEquals(Map.of(1990, 1L), userService.getStats().getByBirthYear());
+
+        userStatistics.reconcile();
+
+        Assertions.assertEquals(Map.of(1990, 1L), userService.getStats().getByBirthYear());
+
+        userService.deleteById(user.getId());
+
+        Assertions.assertEquals(0, userService.getStats().getTotal());
+        Assertions.assertTrue(userService.getStats().getByBirthYear().isEmpty());
+    }
+
+    @Test
+    void testGetStatsShouldFollowUpdateOfNotCachedUser() {
+        UserData user = userService.save(userData);
+
+        userStatistics.reconcile();
+        userCache.clear();
+        userService.update(user.getId(), UserData.Builder.fromScratch()
+                .setBirthDate(LocalDate.of(1980, 5, 5))
+                .build());
+
+        Assertions.assertEquals(Map.of(1980, 1L), userService.getStats().getByBirthYear());
+    }
+
+    @Test
+    void testGetStatsShouldFollowConditionalUpdateOfNotCachedUser() {
+        UserData user = userService.save(userData);
+
+        userStatistics.reconcile();
+        userCache.clear();
+        userService.update(user.getId(), UserData.Builder.fromScratch()
+                .setBirthDate(LocalDate.of(1980, 5, 5))
+                .build(), user.getVersion());
+
+        Assertions.assertEquals(Map.of(1980, 1L), userService.getStats().getByBirthYear());
+    }
+
+    @Test
+    void testUpdateShouldNotReachCacheOrStatsWhenRolledBack() {
+        userStatistics.reconcile();
+
+        UserData user = userService.save(userData);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.update(user.getId(), UserData.Builder.fromScratch()
+                    .setBirthDate(LocalDate.of(1980, 5, 5))
+                    .build());
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals(Map.of(1999, 1L), userService.getStats().getByBirthYear());
+        Assertions.assertEquals(LocalDate.of(1999, 12, 31), userService.findById(user.getId())
+                .map(UserData::getBirthDate)
+                .orElse(null));
+    }
+
+    @Test
+    void testFindByMailShouldUseCache() {
+        UserData user = userRepository.save(userData);
+
+        userService.findByMail(user.getMail());
+
+        long hits = userCache.getByMailStats().hitCount();
+
+        Assertions.assertTrue(userService.findByMail(user.getMail()).isPresent());
+        Assertions.assertEquals(hits + 1, userCache.getByMailStats().hitCount());
+    }
+
+    @Test
+    void testSaveShouldUpdateCache() {
+        UserData user = userService.save(userData);
+
+        userService.findByMail(user.getMail());
+        userService.save(UserData.Builder.basedAt(user)
+                .setMail("another.test@example.com")
+                .build());
+
+        Assertions.assertTrue(userService.findByMail(user.getMail()).isEmpty());
+        Assertions.assertEquals("another.test@example.com", userService.findById(user.getId())
+                .map(UserData::getMail)
+                .orElse(null));
+    }
+
+    @Test
+    void testSaveShouldUpdateMailIndexAndDeleteShouldKeepIt() {
+        UserData user = userService.save(userData);
+
+        Assertions.assertTrue(userMailIndex.mayContain(user.getMail()));
+
+        userService.deleteById(user.getId());
+
+        Assertions.assertTrue(userMailIndex.mayContain(user.getMail()));
+        Assertions.assertTrue(userService.findByMail(user.getMail()).isEmpty());
+
+        UserData reinserted = userService.save(UserData.Builder.basedAt(userData)
+                .setId(null)
+                .setVersion(null)
+                .build());
+
+        Assertions.assertEquals(reinserted.getId(), userService.findByMail(user.getMail()).orElseThrow().getId());
+    }
+
+    @Test
+    void testWarmUpShouldFillMailIndex() {
+        UserData user = userRepository.save(userData);
+
+        userMailIndex.remove(user.getMail());
+
+        Assertions.assertFalse(userMailIndex.mayContain(user.getMail()));
+        Assertions.assertTrue(userService.findByMail(user.getMail()).isEmpty());
+
+        userMailIndex.warmUp();
+
+        Assertions.assertTrue(userMailIndex.mayContain(user.getMail()));
+        Assertions.assertTrue(userService.findByMail(user.getMail()).isPresent());
+    }
+
     @Test
     void testSaveShouldReturnObject() {
         UserData user = userService.save(userData);
@@ -113,6 +350,26 @@ class UserServiceTests {
         Assertions.assertEquals(user.getTel(), userData.getTel());
     }
 
+    @Test
+    void testFindExistingMailsShouldReturnObject() {
+        userRepository.save(userData);
+
+        Set<String> mails = userService.findExistingMails(List.of(userData.getMail(), "another.test@example.com"));
+
+        Assertions.assertEquals(Set.of(userData.getMail()), mails);
+    }
+
+    @Test
+    void testInsertAllShouldReturnObject() {
+        List<UserData> users = userService.insertAll(List.of(userData, UserData.Builder.basedAt(userData)
+                .setMail("another.test@example.com")
+                .build()));
+
+        Assertions.assertEquals(2, userRepository.count());
+        Assertions.assertNotNull(users.get(0).getId());
+        Assertions.assertNotNull(users.get(1).getId());
+    }
+
     @Test
     void testDeleteByIdShouldReturnObject() {
         UserData user = userRepository.save(userData);
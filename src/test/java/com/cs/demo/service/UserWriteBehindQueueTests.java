@@ -0,0 +1,29 @@
+package com.cs.demo.service;
+
+import com.cs.demo.model.UserData;
+import com.cs.demo.model.UserDataWriteStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+class UserWriteBehindQueueTests {
+
+    @Test
+    void testOfferShouldReturnEmptyWhenQueueIsFull() {
+        UserWriteBehindQueue queue = new UserWriteBehindQueue(1, 10, Duration.ofMillis(10), Duration.ofMinutes(1), 10);
+
+        Optional<String> ticket = queue.offer(UserData.Builder.fromScratch().build());
+
+        Assertions.assertTrue(ticket.isPresent());
+        Assertions.assertEquals(UserDataWriteStatus.State.PENDING, queue.getStatus(ticket.get()).orElseThrow().getState());
+        Assertions.assertTrue(queue.offer(UserData.Builder.fromScratch().build()).isEmpty());
+    }
+
+    @Test
+    void testStatusesShouldNotBeBoundedBelowCapacity() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new UserWriteBehindQueue(10, 10, Duration.ofMillis(10), Duration.ofMinutes(1), 9));
+    }
+}
@@ -0,0 +1,115 @@
+package com.cs.demo.validator;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+class MailValidatorTests {
+
+    private static final String MAIL_PATTERN_VALID_SYMBOLS_PART = "[a-z0-9!#$%&'*+/=?^_`{|}~-]+";
+
+    private static final String MAIL_PATTERN_VALID_DOMAIN_PART = "[a-z0-9](?:[a-z0-9-]*[a-z0-9])?";
+
+    private static final Pattern MAIL_PATTERN = Pattern.compile(String.format("^%1$s(?:\\.%1$s)*@(?:%2$s\\.)+%2$s$",
+            MAIL_PATTERN_VALID_SYMBOLS_PART, MAIL_PATTERN_VALID_DOMAIN_PART));
+
+    private static final String ALPHABET = "az09.@-_+!#$%&'*/=?^`{|}~ AZé\n\r\u0085\u2028\u2029\t";
+
+    private static final String LOCAL_PART_ALPHABET = "az09!#$%&'*+/=?^_`{|}~-";
+
+    private static final String DOMAIN_ALPHABET = "az09-";
+
+    private static final List<String> LINE_TERMINATORS = List.of("\n", "\r", "\r\n", "\u0085", "\u2028", "\u2029");
+
+    @Test
+    void testIsValidShouldAcceptValidMails() {
+        for (String mail : List.of("test@example.com", "a@b.c", "first.last@sub.example.com",
+                "!#$%&'*+/=?^_`{|}~-@a-b.c0", "x@1.2", "test@example.com\n", "test@example.com\r\n",
+                "test@example.com\u2028")) {
+            Assertions.assertTrue(MailValidator.isValid(mail), mail);
+        }
+    }
+
+    @Test
+    void testIsValidShouldRejectInvalidMails() {
+        for (String mail : List.of("", "test", "@example.com", "test@", "test@example", ".test@example.com",
+                "test.@example.com", "te..st@example.com", "test@-example.com", "test@example-.com",
+                "test@example..com", "test@.example.com", "test@example.com.", "Test@example.com",
+                "test@Example.com", "test@exa_mple.com", "te@st@example.com", "test@example.com\n\n",
+                "test@example.com\r\r\n", "test@example.com \n", "\ntest@example.com")) {
+            Assertions.assertFalse(MailValidator.isValid(mail), mail);
+        }
+    }
+
+    @Test
+    void testIsValidShouldMatchPatternOnRandomInputs() {
+        Random random = new Random(20240501L);
+        int validCount = 0;
+
+        for (int i = 0; i < 200_000; i++) {
+            String mail = i % 2 == 0 ? randomChars(random) : randomMail(random);
+            boolean valid = MAIL_PATTERN.matcher(mail).find();
+
+            Assertions.assertEquals(valid, MailValidator.isValid(mail),
+                    () -> String.format("mismatch for '%s'", mail.replace("\n", "\\n").replace("\r", "\\r")));
+
+            if (valid) {
+                validCount++;
+            }
+        }
+
+        Assertions.assertTrue(validCount > 10_000, String.valueOf(validCount));
+    }
+
+    private static String randomChars(Random random) {
+        return randomString(random, ALPHABET, random.nextInt(16));
+    }
+
+    private static String randomMail(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int atoms = 1 + random.nextInt(3);
+
+        for (int i = 0; i < atoms; i++) {
+            builder.append(i > 0 ? "." : "").append(randomString(random, LOCAL_PART_ALPHABET, 1 + random.nextInt(4)));
+        }
+
+        builder.append('@');
+        int labels = 1 + random.nextInt(3);
+
+        for (int i = 0; i < labels; i++) {
+            builder.append(i > 0 ? "." : "").append(randomString(random, DOMAIN_ALPHABET, 1 + random.nextInt(4)));
+        }
+
+        if (random.nextInt(4) == 0) {
+            builder.append(LINE_TERMINATORS.get(random.nextInt(LINE_TERMINATORS.size())));
+        }
+
+        int mutations = random.nextInt(3);
+
+        for (int i = 0; i < mutations && builder.length() > 0; i++) {
+            int index = random.nextInt(builder.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+
+            switch (random.nextInt(3)) {
+                case 0 -> builder.insert(index, c);
+                case 1 -> builder.deleteCharAt(index);
+                default -> builder.setCharAt(index, c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.cs.demo.testdata;
+
+import com.cs.demo.model.UserData;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic users shared by the benchmarks and the load test: the same index always gives the same user, with birth
+ * dates spread over {@link #BIRTH_DATE_DAYS} days from {@link #FIRST_BIRTH_DATE}.
+ */
+public final class Users {
+
+    public static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1940, 1, 1);
+
+    public static final int BIRTH_DATE_DAYS = 60 * 365;
+
+    private Users() {}
+
+    public static UserData user(long index) {
+        return UserData.Builder.fromScratch()
+                .setMail(String.format("user%d@example.com", index))
+                .setFirstName("firstName" + index)
+                .setLastName("lastName" + index)
+                .setBirthDate(FIRST_BIRTH_DATE.plusDays(Math.floorMod(index * 7919, BIRTH_DATE_DAYS)))
+                .setAddress("Example str., " + index)
+                .setTel("+1555" + index)
+                .build();
+    }
+
+    public static List<UserData> users(long from, int count) {
+        List<UserData> users = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            users.add(user(from + i));
+        }
+
+        return users;
+    }
+}